@@ -0,0 +1,140 @@
+package com.zb.commons.redis.benchmark;
+
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 基准测试入口
+ * <p>
+ * 带参数时与JMH命令行相同,例如只看get且使用16个线程:
+ * <pre>java -jar benchmarks.jar RedisServiceBenchmark.get -t 16 -prof gc</pre>
+ * 不带参数时依次以-Dthreads(默认1,4,16,64,256)个线程运行Redis相关的基准测试,以单线程运行序列化的基准测试,
+ * 均启用GC分析器,最后按操作汇总吞吐量、p99延迟及每次操作的分配字节数;各次的原始结果写入当前目录的jmh-*.json
+ *
+ * @author zhangbo
+ */
+public class RedisBenchmarkRunner {
+
+    private static final String REDIS_BENCHMARKS = RedisServiceBenchmark.class.getSimpleName()
+            + "|" + RedisExpireBenchmark.class.getSimpleName();
+
+    public static void main(String[] args) throws RunnerException, IOException {
+        if (args.length > 0) {
+            org.openjdk.jmh.Main.main(args);
+            return;
+        }
+        List<RunResult> results = new ArrayList<>();
+        for (String threads : System.getProperty("threads", "1,4,16,64,256").split(",")) {
+            int count = Integer.parseInt(threads.trim());
+            results.addAll(run(options(REDIS_BENCHMARKS, "t" + count).threads(count)));
+        }
+        results.addAll(run(options(RedisValueSerializerBenchmark.class.getSimpleName(), "serializer").threads(1)));
+        print(results);
+    }
+
+    private static ChainedOptionsBuilder options(String include, String name) {
+        return new OptionsBuilder()
+                .include(include)
+                .addProfiler(GCProfiler.class)
+                .resultFormat(ResultFormatType.JSON)
+                .result("jmh-" + name + ".json");
+    }
+
+    private static Collection<RunResult> run(ChainedOptionsBuilder options) throws RunnerException {
+        return new Runner(options.build()).run();
+    }
+
+    /**
+     * 同一操作的吞吐量及延迟分布两种模式合并为一行
+     */
+    private static void print(List<RunResult> results) {
+        Map<String, Row> rows = new TreeMap<>();
+        for (RunResult result : results) {
+            BenchmarkParams params = result.getParams();
+            String key = String.format("%-80s %4d", label(params), params.getThreads());
+            Row row = rows.computeIfAbsent(key, k -> new Row());
+            Result primary = result.getPrimaryResult();
+            switch (params.getMode()) {
+            case Throughput:
+                row.throughput = primary.getScore();
+                row.throughputUnit = primary.getScoreUnit();
+                row.allocated = allocated(result);
+                break;
+            case SampleTime:
+                row.p99 = primary.getStatistics().getPercentile(99);
+                row.latencyUnit = primary.getScoreUnit();
+                break;
+            default:
+                row.average = primary.getScore();
+                row.latencyUnit = primary.getScoreUnit();
+                row.allocated = allocated(result);
+            }
+        }
+        System.out.println();
+        System.out.println(String.format("%-80s %4s %16s %16s %16s %14s",
+                "Benchmark", "Thr", "Throughput", "p99", "Avg", "Alloc(B/op)"));
+        for (Map.Entry<String, Row> entry : rows.entrySet()) {
+            Row row = entry.getValue();
+            System.out.println(String.format("%s %16s %16s %16s %14s", entry.getKey(),
+                    format(row.throughput, row.throughputUnit), format(row.p99, row.latencyUnit),
+                    format(row.average, row.latencyUnit), format(row.allocated, "")));
+        }
+    }
+
+    private static String label(BenchmarkParams params) {
+        String benchmark = params.getBenchmark();
+        StringBuilder label = new StringBuilder(benchmark.substring(benchmark.lastIndexOf('.', benchmark.lastIndexOf('.') - 1) + 1));
+        for (String param : params.getParamsKeys()) {
+            label.append(' ').append(param).append('=').append(params.getParam(param));
+        }
+        return label.toString();
+    }
+
+    /**
+     * GC分析器的gc.alloc.rate.norm,即每次操作分配的字节数
+     */
+    private static double allocated(RunResult result) {
+        for (Map.Entry<String, Result> entry : result.getSecondaryResults().entrySet()) {
+            if (entry.getKey().endsWith("gc.alloc.rate.norm")) {
+                return entry.getValue().getScore();
+            }
+        }
+        return Double.NaN;
+    }
+
+    private static String format(double value, String unit) {
+        if (Double.isNaN(value)) {
+            return "-";
+        }
+        return String.format("%.3f %s", value, unit).trim();
+    }
+
+    private static class Row {
+
+        private double throughput = Double.NaN;
+
+        private String throughputUnit;
+
+        private double p99 = Double.NaN;
+
+        private double average = Double.NaN;
+
+        private String latencyUnit;
+
+        private double allocated = Double.NaN;
+    }
+}
@@ -0,0 +1,70 @@
+package com.zb.commons.redis.benchmark;
+
+import redis.embedded.RedisServer;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.ServerSocket;
+
+/**
+ * 基准测试使用的Redis
+ * <p>
+ * 指定了-Dredis.host时连接该Redis(端口为-Dredis.port,默认6379);
+ * 否则在本机随机端口启动一个嵌入的Redis进程,关闭持久化,测试结束后停止.
+ * 嵌入的Redis版本为2.8,只用于对比不同写法的相对开销,绝对数值以实际部署的版本为准
+ *
+ * @author zhangbo
+ */
+public final class RedisBenchmarkServer implements AutoCloseable {
+
+    private final String host;
+
+    private final int port;
+
+    private final RedisServer embedded;
+
+    private RedisBenchmarkServer(String host, int port, RedisServer embedded) {
+        this.host = host;
+        this.port = port;
+        this.embedded = embedded;
+    }
+
+    public static RedisBenchmarkServer start() {
+        String host = System.getProperty("redis.host");
+        if (host != null && !host.isEmpty()) {
+            return new RedisBenchmarkServer(host, Integer.getInteger("redis.port", 6379), null);
+        }
+        int port = freePort();
+        RedisServer server = RedisServer.builder().port(port)
+                .setting("bind 127.0.0.1")
+                .setting("save \"\"")
+                .setting("appendonly no")
+                .setting("maxclients 1024")
+                .build();
+        server.start();
+        return new RedisBenchmarkServer("127.0.0.1", port, server);
+    }
+
+    public String getHost() {
+        return host;
+    }
+
+    public int getPort() {
+        return port;
+    }
+
+    @Override
+    public void close() {
+        if (embedded != null) {
+            embedded.stop();
+        }
+    }
+
+    private static int freePort() {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
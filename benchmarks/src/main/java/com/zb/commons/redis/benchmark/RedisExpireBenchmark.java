@@ -0,0 +1,96 @@
+package com.zb.commons.redis.benchmark;
+
+import com.zb.commons.redis.RedisService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 带过期时间的写入:原先的先写入再EXPIRE两次往返,与现在的SET EX及Lua脚本一次往返对比
+ *
+ * @author zhangbo
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RedisExpireBenchmark {
+
+    private static final int EXPIRE = 600;
+
+    private static final int KEY_COUNT = 1000;
+
+    private static final String VALUE = "benchmark_value_0123456789";
+
+    private RedisService redisService;
+
+    private JedisPool jedisPool;
+
+    private String[] keys;
+
+    @Setup(Level.Trial)
+    public void setUp(RedisServiceState state) {
+        redisService = state.getRedisService();
+        jedisPool = state.getJedisPool();
+        keys = new String[KEY_COUNT];
+        for (int i = 0; i < KEY_COUNT; i++) {
+            keys[i] = "bench_expire_" + i;
+        }
+    }
+
+    /**
+     * 原写法:SET后再EXPIRE,两次往返且两条命令之间不是原子的
+     */
+    @Benchmark
+    public Object legacySetThenExpire() {
+        String key = randomKey();
+        try (Jedis jedis = jedisPool.getResource()) {
+            jedis.set(key, VALUE);
+            return jedis.expire(key, EXPIRE);
+        }
+    }
+
+    @Benchmark
+    public void setWithExpire() {
+        redisService.put(randomKey(), VALUE, EXPIRE);
+    }
+
+    /**
+     * 原写法:HSET后再EXPIRE
+     */
+    @Benchmark
+    public Object legacyHashSetThenExpire() {
+        String key = randomKey();
+        try (Jedis jedis = jedisPool.getResource()) {
+            jedis.hset(key + "_hash", "field", VALUE);
+            return jedis.expire(key + "_hash", EXPIRE);
+        }
+    }
+
+    /**
+     * HSET及EXPIRE在一个脚本中执行
+     */
+    @Benchmark
+    public void hashSetWithExpire() {
+        redisService.hashPut(randomKey() + "_hash", "field", VALUE, EXPIRE);
+    }
+
+    private String randomKey() {
+        return keys[ThreadLocalRandom.current().nextInt(KEY_COUNT)];
+    }
+}
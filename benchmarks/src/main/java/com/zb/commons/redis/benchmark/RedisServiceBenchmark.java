@@ -0,0 +1,181 @@
+package com.zb.commons.redis.benchmark;
+
+import com.zb.commons.redis.BatchResult;
+import com.zb.commons.redis.RedisLock;
+import com.zb.commons.redis.RedisService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * RedisService常用操作的吞吐量及延迟分布
+ * <p>
+ * 读操作在预先写入的keyCount个键中随机选取;写操作覆盖同一批键,不会使数据量增长.
+ * 线程数由-t指定,连接池大小随之调整,见{@link RedisServiceState}
+ *
+ * @author zhangbo
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RedisServiceBenchmark {
+
+    private static final int EXPIRE = 600;
+
+    @Param({"128", "2048"})
+    private int valueSize;
+
+    @Param({"1000"})
+    private int keyCount;
+
+    private RedisService redisService;
+
+    private String value;
+
+    private String[] keys;
+
+    private String[] fields;
+
+    @Setup(Level.Trial)
+    public void setUp(RedisServiceState state) {
+        redisService = state.getRedisService();
+        char[] chars = new char[valueSize];
+        Arrays.fill(chars, 'v');
+        value = new String(chars);
+        keys = new String[keyCount];
+        fields = new String[keyCount];
+        for (int i = 0; i < keyCount; i++) {
+            keys[i] = "bench_key_" + i;
+            fields[i] = "field_" + i;
+            redisService.put(keys[i], value, EXPIRE);
+            redisService.hashPut("bench_hash", fields[i], value, EXPIRE);
+        }
+        for (int i = 0; i < 100; i++) {
+            redisService.createOrUpdateListByLeftPush("bench_list", value, EXPIRE);
+        }
+    }
+
+    /**
+     * 每个线程独立的列表及锁,避免线程间竞争影响单次操作的测量
+     */
+    @State(Scope.Thread)
+    public static class ThreadState {
+
+        private static final AtomicInteger THREADS = new AtomicInteger();
+
+        private String listKey;
+
+        private String lockName;
+
+        private RedisLock lock;
+
+        private List<String> batchKeys;
+
+        @Setup(Level.Trial)
+        public void setUp(RedisServiceState state) {
+            int thread = THREADS.incrementAndGet();
+            listKey = "bench_list_" + thread;
+            lockName = "bench_lock_" + thread;
+            lock = state.getRedisService().getLock("bench_reentrant_" + thread);
+            batchKeys = new ArrayList<>(100);
+            for (int i = 0; i < 100; i++) {
+                batchKeys.add("bench_key_" + i);
+            }
+        }
+    }
+
+    @Benchmark
+    public Object get() {
+        return redisService.get(randomKey());
+    }
+
+    @Benchmark
+    public void put() {
+        redisService.put(randomKey(), value, EXPIRE);
+    }
+
+    @Benchmark
+    public Object hashGet() {
+        return redisService.hashGet("bench_hash", fields[ThreadLocalRandom.current().nextInt(keyCount)]);
+    }
+
+    @Benchmark
+    public void hashPut() {
+        redisService.hashPut("bench_hash", fields[ThreadLocalRandom.current().nextInt(keyCount)], value, EXPIRE);
+    }
+
+    /**
+     * 左进右出,列表长度保持不变
+     */
+    @Benchmark
+    public Object listPushPop(ThreadState thread) {
+        redisService.createOrUpdateListByLeftPush(thread.listKey, value, EXPIRE);
+        return redisService.listRightPop(thread.listKey);
+    }
+
+    @Benchmark
+    public List<Object> listRange() {
+        return redisService.getList("bench_list", 0, 9);
+    }
+
+    /**
+     * 无竞争时获取并释放一次锁
+     */
+    @Benchmark
+    public boolean tryLockAndRelease(ThreadState thread) {
+        String identifier = redisService.tryLock(thread.lockName, 1, 30);
+        return identifier != null && redisService.releaseLock(thread.lockName, identifier);
+    }
+
+    /**
+     * 可重入锁,包含看门狗的登记及注销
+     */
+    @Benchmark
+    public boolean reentrantLockAndUnlock(ThreadState thread) {
+        boolean locked = thread.lock.tryLock();
+        if (locked) {
+            thread.lock.unlock();
+        }
+        return locked;
+    }
+
+    /**
+     * 所有线程竞争同一把锁,未获得时立即返回
+     */
+    @Benchmark
+    public boolean contendedTryLock() {
+        String identifier = redisService.tryLock("bench_lock_shared", 0, 30);
+        return identifier != null && redisService.releaseLock("bench_lock_shared", identifier);
+    }
+
+    /**
+     * 一次读取100个键,按节点分组流水线执行
+     */
+    @Benchmark
+    public BatchResult<String> multiGet(ThreadState thread) {
+        return redisService.multiGet(thread.batchKeys);
+    }
+
+    private String randomKey() {
+        return keys[ThreadLocalRandom.current().nextInt(keyCount)];
+    }
+}
@@ -0,0 +1,86 @@
+package com.zb.commons.redis.benchmark;
+
+import com.zb.commons.redis.RedisService;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.springframework.boot.Banner;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import redis.clients.jedis.JedisPool;
+
+/**
+ * 按starter的自动配置创建RedisService,与应用中的调用路径一致
+ * <p>
+ * 连接池大小按基准测试的线程数设置,测得的是Redis及客户端本身的开销而不是排队等待连接的时间.
+ * 锁释放通知的订阅会一直占用池中的一个连接,另留出余量
+ *
+ * @author zhangbo
+ */
+@State(Scope.Benchmark)
+public class RedisServiceState {
+
+    private static final int RESERVED_CONNECTIONS = 2;
+
+    private RedisBenchmarkServer server;
+
+    private ConfigurableApplicationContext context;
+
+    private RedisService redisService;
+
+    private JedisPool jedisPool;
+
+    @Setup(Level.Trial)
+    public void setUp(BenchmarkParams params) {
+        server = RedisBenchmarkServer.start();
+        int connections = params.getThreads() + RESERVED_CONNECTIONS;
+        context = new SpringApplicationBuilder(Application.class)
+                .web(WebApplicationType.NONE)
+                .bannerMode(Banner.Mode.OFF)
+                .logStartupInfo(false)
+                .properties("jedis.enabled=true",
+                        "jedis.host=" + server.getHost(),
+                        "jedis.port=" + server.getPort(),
+                        "jedis.single-stack=true",
+                        "jedis.pool.max-active=" + connections,
+                        "jedis.pool.max-idle=" + connections,
+                        "jedis.pool.max-wait=2000",
+                        "logging.level.root=WARN")
+                .run();
+        redisService = context.getBean(RedisService.class);
+        jedisPool = context.getBean(JedisPool.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (context != null) {
+            context.close();
+        }
+        if (server != null) {
+            server.close();
+        }
+    }
+
+    public RedisService getRedisService() {
+        return redisService;
+    }
+
+    /**
+     * RedisService使用的连接池,用于对比未经封装的写法
+     * @return
+     */
+    public JedisPool getJedisPool() {
+        return jedisPool;
+    }
+
+    @SpringBootConfiguration
+    @EnableAutoConfiguration
+    static class Application {
+    }
+}
@@ -0,0 +1,233 @@
+package com.zb.commons.redis.benchmark;
+
+import com.zb.commons.redis.KryoRedisValueSerializer;
+import com.zb.commons.redis.Lz4RedisValueSerializer;
+import com.zb.commons.redis.RedisValueSerializer;
+import com.zb.commons.redis.SmileRedisValueSerializer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 对象值各序列化方式的编解码耗时
+ * <p>
+ * 写入Redis的字节数在初始化时输出,格式为"[wire] 序列化方式 items=元素数 bytes=字节数"
+ *
+ * @author zhangbo
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RedisValueSerializerBenchmark {
+
+    /**
+     * 压缩阈值,与jedis.serializer.compress-threshold含义相同
+     */
+    private static final int COMPRESS_THRESHOLD = 1024;
+
+    @Param({"smile", "kryo", "smile-lz4", "kryo-lz4"})
+    private String serializerType;
+
+    /**
+     * 订单明细的行数,决定对象大小
+     */
+    @Param({"1", "50"})
+    private int items;
+
+    private RedisValueSerializer serializer;
+
+    private Order order;
+
+    private byte[] bytes;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        serializer = serializer(serializerType);
+        order = Order.sample(items);
+        bytes = serializer.serialize(order);
+        System.out.println("[wire] " + serializerType + " items=" + items + " bytes=" + bytes.length);
+    }
+
+    @Benchmark
+    public byte[] serialize() {
+        return serializer.serialize(order);
+    }
+
+    @Benchmark
+    public Order deserialize() {
+        return serializer.deserialize(bytes, Order.class);
+    }
+
+    private static RedisValueSerializer serializer(String type) {
+        switch (type) {
+        case "smile":
+            return new SmileRedisValueSerializer();
+        case "kryo":
+            return new KryoRedisValueSerializer();
+        case "smile-lz4":
+            return new Lz4RedisValueSerializer(new SmileRedisValueSerializer(), COMPRESS_THRESHOLD);
+        case "kryo-lz4":
+            return new Lz4RedisValueSerializer(new KryoRedisValueSerializer(), COMPRESS_THRESHOLD);
+        default:
+            throw new IllegalArgumentException("unknown serializer: " + type);
+        }
+    }
+
+    /**
+     * 典型的缓存对象:若干标量字段加一个明细列表
+     */
+    public static class Order {
+
+        private long id;
+
+        private String orderNo;
+
+        private String userName;
+
+        private BigDecimal amount;
+
+        private int status;
+
+        private Date createTime;
+
+        private List<OrderItem> items;
+
+        static Order sample(int itemCount) {
+            Order order = new Order();
+            order.setId(1234567890L);
+            order.setOrderNo("NO202101010000001234");
+            order.setUserName("benchmark user");
+            order.setAmount(new BigDecimal("12345.67"));
+            order.setStatus(2);
+            order.setCreateTime(new Date(1609430400000L));
+            List<OrderItem> items = new ArrayList<>(itemCount);
+            for (int i = 0; i < itemCount; i++) {
+                OrderItem item = new OrderItem();
+                item.setSkuId(100000L + i);
+                item.setSkuName("sku name of item " + i);
+                item.setPrice(new BigDecimal("99.90"));
+                item.setQuantity(i % 5 + 1);
+                items.add(item);
+            }
+            order.setItems(items);
+            return order;
+        }
+
+        public long getId() {
+            return id;
+        }
+
+        public void setId(long id) {
+            this.id = id;
+        }
+
+        public String getOrderNo() {
+            return orderNo;
+        }
+
+        public void setOrderNo(String orderNo) {
+            this.orderNo = orderNo;
+        }
+
+        public String getUserName() {
+            return userName;
+        }
+
+        public void setUserName(String userName) {
+            this.userName = userName;
+        }
+
+        public BigDecimal getAmount() {
+            return amount;
+        }
+
+        public void setAmount(BigDecimal amount) {
+            this.amount = amount;
+        }
+
+        public int getStatus() {
+            return status;
+        }
+
+        public void setStatus(int status) {
+            this.status = status;
+        }
+
+        public Date getCreateTime() {
+            return createTime;
+        }
+
+        public void setCreateTime(Date createTime) {
+            this.createTime = createTime;
+        }
+
+        public List<OrderItem> getItems() {
+            return items;
+        }
+
+        public void setItems(List<OrderItem> items) {
+            this.items = items;
+        }
+    }
+
+    public static class OrderItem {
+
+        private long skuId;
+
+        private String skuName;
+
+        private BigDecimal price;
+
+        private int quantity;
+
+        public long getSkuId() {
+            return skuId;
+        }
+
+        public void setSkuId(long skuId) {
+            this.skuId = skuId;
+        }
+
+        public String getSkuName() {
+            return skuName;
+        }
+
+        public void setSkuName(String skuName) {
+            this.skuName = skuName;
+        }
+
+        public BigDecimal getPrice() {
+            return price;
+        }
+
+        public void setPrice(BigDecimal price) {
+            this.price = price;
+        }
+
+        public int getQuantity() {
+            return quantity;
+        }
+
+        public void setQuantity(int quantity) {
+            this.quantity = quantity;
+        }
+    }
+}
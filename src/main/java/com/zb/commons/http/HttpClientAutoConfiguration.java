@@ -1,8 +1,13 @@
 package com.zb.commons.http;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
 import lombok.Getter;
 import lombok.Setter;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
@@ -26,12 +31,63 @@ public class HttpClientAutoConfiguration {
     private HttpClientProperties httpClientProperties;
     
     @Bean(initMethod = "init", destroyMethod = "destroy")
-    public SimpleHttpClient simpleHttpClient() {
+    public SimpleHttpClient simpleHttpClient(ObjectProvider<HttpClientMetrics> httpClientMetrics) {
     	SimpleHttpClient simpleHttpClient = new SimpleHttpClient();
     	simpleHttpClient.setTimeout(httpClientProperties.getTimeout());
+        simpleHttpClient.setConnectTimeout(httpClientProperties.getConnectTimeout());
+        simpleHttpClient.setReadTimeout(httpClientProperties.getReadTimeout());
+        simpleHttpClient.setConnectionRequestTimeout(httpClientProperties.getConnectionRequestTimeout());
+        simpleHttpClient.setDeadline(httpClientProperties.getDeadline());
     	simpleHttpClient.setPoolSize(httpClientProperties.getPoolSize());
+        HttpClientProperties.Pool pool = httpClientProperties.getPool();
+        simpleHttpClient.setMaxConnTotal(pool.getMaxTotal());
+        simpleHttpClient.setMaxConnPerRoute(pool.getMaxPerRoute());
+        simpleHttpClient.setMaxConnPerHost(pool.getMaxPerHost());
+        simpleHttpClient.setConnTimeToLive(pool.getTimeToLive());
+        simpleHttpClient.setMaxIdleTime(pool.getMaxIdleTime());
+        simpleHttpClient.setValidateAfterInactivity(pool.getValidateAfterInactivity());
         simpleHttpClient.setLogLevel(httpClientProperties.getLogLevel());
+        httpClientMetrics.ifAvailable(metrics -> metrics.bindPool(simpleHttpClient));
         return simpleHttpClient;
     }
 
+    //Micrometer指标:httpclient.metrics.enabled=true且类路径上有micrometer-core时按主机记录连接池的借出、可用、等待连接数.
+    //未声明MeterRegistry时使用全局注册表
+    @Configuration
+    @ConditionalOnClass(name = "io.micrometer.core.instrument.MeterRegistry")
+    @ConditionalOnProperty(prefix = "httpclient.metrics", value = "enabled", havingValue = "true")
+    static class HttpClientMetricsConfiguration {
+
+        @Bean
+        @ConditionalOnMissingBean(value = HttpClientMetrics.class)
+        public HttpClientMetrics httpClientMetrics(ObjectProvider<MeterRegistry> meterRegistry) {
+            return new MicrometerHttpClientMetrics(meterRegistry.getIfAvailable(() -> Metrics.globalRegistry));
+        }
+    }
+
+    //异步客户端:httpclient.async.enabled=true且类路径上有httpclient5时创建,各项超时时间及日志级别与同步客户端一致
+    @Configuration
+    @ConditionalOnClass(name = "org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient")
+    @ConditionalOnProperty(prefix = "httpclient.async", value = "enabled", havingValue = "true")
+    static class AsyncHttpClientConfiguration {
+
+        @Bean(initMethod = "init", destroyMethod = "destroy")
+        public SimpleAsyncHttpClient simpleAsyncHttpClient(HttpClientProperties httpClientProperties) {
+            HttpClientProperties.Async async = httpClientProperties.getAsync();
+            SimpleAsyncHttpClient simpleAsyncHttpClient = new SimpleAsyncHttpClient();
+            simpleAsyncHttpClient.setTimeout(httpClientProperties.getTimeout());
+            simpleAsyncHttpClient.setConnectTimeout(httpClientProperties.getConnectTimeout());
+            simpleAsyncHttpClient.setReadTimeout(httpClientProperties.getReadTimeout());
+            simpleAsyncHttpClient.setConnectionRequestTimeout(httpClientProperties.getConnectionRequestTimeout());
+            simpleAsyncHttpClient.setIoThreads(async.getIoThreads());
+            simpleAsyncHttpClient.setMaxConnTotal(async.getMaxConnTotal());
+            simpleAsyncHttpClient.setMaxConnPerRoute(async.getMaxConnPerRoute());
+            simpleAsyncHttpClient.setHttpVersion(async.getHttpVersion());
+            simpleAsyncHttpClient.setHttp2Hosts(async.getHttp2Hosts());
+            simpleAsyncHttpClient.setCallbackThreads(async.getCallbackThreads());
+            simpleAsyncHttpClient.setLogLevel(httpClientProperties.getLogLevel());
+            return simpleAsyncHttpClient;
+        }
+    }
+
 }
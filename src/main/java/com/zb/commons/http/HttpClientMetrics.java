@@ -0,0 +1,17 @@
+package com.zb.commons.http;
+
+/**
+ * HTTP客户端的指标采集
+ * <p>
+ * 接口本身不依赖具体的指标库,指标库不在类路径上时不会被加载
+ *
+ * @author zhangbo
+ */
+public interface HttpClientMetrics {
+
+    /**
+     * 注册连接池各主机的借出、可用、等待连接数及连接数上限,可在SimpleHttpClient初始化之前调用
+     * @param simpleHttpClient
+     */
+    void bindPool(SimpleHttpClient simpleHttpClient);
+}
@@ -5,6 +5,11 @@ import lombok.Setter;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.stereotype.Component;
 
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
 /**
  * @author zhangbo
  */
@@ -14,10 +19,126 @@ import org.springframework.stereotype.Component;
 @ConfigurationProperties(prefix = "httpclient")
 public class HttpClientProperties {
     
+    /**
+     * 默认超时时间,单位为秒,用于未单独设置的连接、读取及获取连接超时
+     */
     private int timeout = 60;
 
+    /**
+     * 建立连接的超时时间,单位为毫秒,小于等于0时为timeout
+     */
+    private int connectTimeout = 0;
+
+    /**
+     * 等待响应数据的超时时间,即相邻两次读到数据的最长间隔,单位为毫秒,小于等于0时为timeout
+     */
+    private int readTimeout = 0;
+
+    /**
+     * 从连接池获取连接的超时时间,单位为毫秒,小于等于0时为timeout.应远小于读取超时,连接池耗尽时尽快失败
+     */
+    private int connectionRequestTimeout = 0;
+
+    /**
+     * 同步客户端整个调用的时限,包括获取连接、建立连接、重试及读取响应体,单位为毫秒,小于等于0时不限.
+     * 个别调用可用SimpleHttpClient.withTimeouts/withDeadline单独设置
+     */
+    private long deadline = 0;
+
     private int poolSize = 30;
     
     private SimpleHttpClient.LogLevel logLevel = SimpleHttpClient.LogLevel.NONE;
-    
+
+    private Pool pool = new Pool();
+
+    private Metrics metrics = new Metrics();
+
+    private Async async = new Async();
+
+    @Getter
+    @Setter
+    public static class Pool {
+
+        /**
+         * 连接总数上限,小于等于0时为pool-size
+         */
+        private int maxTotal = 0;
+
+        /**
+         * 每个主机的默认连接数上限,小于等于0时为pool-size.小于max-total时一个慢主机不会占满整个连接池
+         */
+        private int maxPerRoute = 0;
+
+        /**
+         * 按主机单独设置的连接数上限,键为host、host:port或scheme://host:port,
+         * 含.或:时需用方括号,如httpclient.pool.max-per-host[api.example.com]=5
+         */
+        private Map<String, Integer> maxPerHost = new LinkedHashMap<>();
+
+        /**
+         * 连接的存活时间上限,单位为秒,到期后不再复用,小于等于0时不限
+         */
+        private int timeToLive = 0;
+
+        /**
+         * 连接空闲超过该秒数后由后台线程关闭,小于等于0时不清理
+         */
+        private int maxIdleTime = 60;
+
+        /**
+         * 连接空闲超过该毫秒数后,复用前先检查是否可用;为0时按1处理,即空闲超过1毫秒的连接复用前都检查,小于0时不检查
+         */
+        private int validateAfterInactivity = 2000;
+    }
+
+    @Getter
+    @Setter
+    public static class Metrics {
+
+        /**
+         * 是否按主机记录连接池的借出、可用、等待连接数,需要micrometer-core
+         */
+        private boolean enabled = false;
+    }
+
+    @Getter
+    @Setter
+    public static class Async {
+
+        /**
+         * 是否创建SimpleAsyncHttpClient,需要httpclient5
+         */
+        private boolean enabled = false;
+
+        /**
+         * 协议版本,默认https地址经ALPN协商HTTP/2
+         */
+        private SimpleAsyncHttpClient.HttpVersion httpVersion = SimpleAsyncHttpClient.HttpVersion.NEGOTIATE;
+
+        /**
+         * 已知支持HTTP/2的主机,格式为host或host:port,这些主机的请求在一个连接上多路复用
+         */
+        private Set<String> http2Hosts = new LinkedHashSet<>();
+
+        /**
+         * I/O线程数,小于等于0时为CPU核数
+         */
+        private int ioThreads = 0;
+
+        /**
+         * HTTP/1.1连接总数上限,多路复用的HTTP/2主机不占用
+         */
+        private int maxConnTotal = 200;
+
+        /**
+         * 每个主机的HTTP/1.1连接数上限
+         */
+        private int maxConnPerRoute = 50;
+
+        /**
+         * 解码及解析响应的线程数,与I/O线程分离;小于等于0时为CPU核数
+         */
+        private int callbackThreads = 0;
+    }
+
 }
@@ -0,0 +1,41 @@
+package com.zb.commons.http;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+
+/**
+ * 连接池中一个主机的使用情况快照
+ *
+ * @author zhangbo
+ */
+@Getter
+@Setter
+@ToString
+public class HttpPoolStats {
+
+    /**
+     * 主机,格式为scheme://host:port
+     */
+    private String route;
+
+    /**
+     * 该主机的最大连接数
+     */
+    private int max;
+
+    /**
+     * 已借出的连接数
+     */
+    private int leased;
+
+    /**
+     * 空闲可复用的连接数
+     */
+    private int available;
+
+    /**
+     * 等待借出连接的请求数
+     */
+    private int pending;
+}
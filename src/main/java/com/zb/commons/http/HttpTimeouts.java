@@ -0,0 +1,37 @@
+package com.zb.commons.http;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+
+/**
+ * 单次调用的超时设置,单位均为毫秒,小于等于0的项沿用客户端的设置
+ *
+ * @author zhangbo
+ * @see SimpleHttpClient#withTimeouts(HttpTimeouts)
+ */
+@Getter
+@Setter
+@ToString
+public class HttpTimeouts {
+
+    /**
+     * 建立连接的超时时间
+     */
+    private int connectTimeout;
+
+    /**
+     * 等待响应数据的超时时间,即相邻两次读到数据的最长间隔
+     */
+    private int readTimeout;
+
+    /**
+     * 从连接池获取连接的超时时间
+     */
+    private int connectionRequestTimeout;
+
+    /**
+     * 整个调用的时限,包括获取连接、建立连接、重试及读取响应体
+     */
+    private long deadline;
+}
@@ -0,0 +1,85 @@
+package com.zb.commons.http;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.pool.PoolStats;
+import org.springframework.beans.factory.DisposableBean;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToIntFunction;
+
+/**
+ * 基于Micrometer的HTTP客户端指标
+ * <p>
+ * <ul>
+ * <li>httpclient.pool.leased/available/pending/max:连接池中各主机借出、空闲、等待中的连接数及连接数上限,按route区分</li>
+ * </ul>
+ * 主机在首次请求后才出现在连接池中,后台线程每10秒检查一次,为新出现的主机注册指标.
+ * 需要自行引入io.micrometer:micrometer-core依赖
+ *
+ * @author zhangbo
+ */
+public class MicrometerHttpClientMetrics implements HttpClientMetrics, DisposableBean {
+
+    private static final int ROUTE_SCAN_SECONDS = 10;
+
+    private final MeterRegistry registry;
+
+    private ScheduledExecutorService scheduler;
+
+    public MicrometerHttpClientMetrics(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Override
+    public synchronized void bindPool(SimpleHttpClient simpleHttpClient) {
+        if (scheduler == null) {
+            scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "httpclient-pool-metrics");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        Set<HttpRoute> registered = new HashSet<>();
+        scheduler.scheduleWithFixedDelay(() -> scanRoutes(simpleHttpClient, registered), 0, ROUTE_SCAN_SECONDS, TimeUnit.SECONDS);
+    }
+
+    /**
+     * 为新出现的主机注册指标
+     */
+    private void scanRoutes(SimpleHttpClient simpleHttpClient, Set<HttpRoute> registered) {
+        PoolingHttpClientConnectionManager connectionManager = simpleHttpClient.getConnectionManager();
+        if (connectionManager == null) {
+            // 尚未初始化
+            return;
+        }
+        for (HttpRoute route : connectionManager.getRoutes()) {
+            if (registered.add(route)) {
+                String name = SimpleHttpClient.routeName(route);
+                gauge("httpclient.pool.leased", "leased connections", connectionManager, route, name, PoolStats::getLeased);
+                gauge("httpclient.pool.available", "idle connections ready for reuse", connectionManager, route, name, PoolStats::getAvailable);
+                gauge("httpclient.pool.pending", "requests waiting for a connection", connectionManager, route, name, PoolStats::getPending);
+                gauge("httpclient.pool.max", "maximum connections", connectionManager, route, name, PoolStats::getMax);
+            }
+        }
+    }
+
+    @Override
+    public synchronized void destroy() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    private void gauge(String name, String description, PoolingHttpClientConnectionManager connectionManager,
+                       HttpRoute route, String routeName, ToIntFunction<PoolStats> value) {
+        Gauge.builder(name, connectionManager, manager -> value.applyAsInt(manager.getStats(route)))
+                .tag("route", routeName).description(description).register(registry);
+    }
+}
@@ -0,0 +1,486 @@
+package com.zb.commons.http;
+
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.google.common.base.Joiner;
+import com.zb.commons.exception.HttpRemoteException;
+import com.zb.commons.json.JacksonJsonMapper;
+import com.zb.commons.validate.CommonValidateUtil;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.hc.client5.http.async.methods.SimpleHttpRequest;
+import org.apache.hc.client5.http.async.methods.SimpleHttpResponse;
+import org.apache.hc.client5.http.async.methods.SimpleRequestBuilder;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
+import org.apache.hc.client5.http.impl.async.H2AsyncClientBuilder;
+import org.apache.hc.client5.http.impl.async.HttpAsyncClients;
+import org.apache.hc.client5.http.impl.nio.PoolingAsyncClientConnectionManager;
+import org.apache.hc.client5.http.impl.nio.PoolingAsyncClientConnectionManagerBuilder;
+import org.apache.hc.core5.concurrent.FutureCallback;
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.NameValuePair;
+import org.apache.hc.core5.http.message.BasicNameValuePair;
+import org.apache.hc.core5.http2.HttpVersionPolicy;
+import org.apache.hc.core5.http2.config.H2Config;
+import org.apache.hc.core5.io.CloseMode;
+import org.apache.hc.core5.net.URIAuthority;
+import org.apache.hc.core5.net.WWWFormCodec;
+import org.apache.hc.core5.reactor.IOReactorConfig;
+import org.apache.hc.core5.util.Timeout;
+
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+
+/**
+ * 异步HTTP客户端
+ * <p>
+ * 基于httpclient5的非阻塞I/O,请求发出后不占用调用线程,少量I/O线程即可维持数千个并发请求.
+ * HTTP/1.1时每个进行中的请求占用一个连接,超出连接池上限的请求排队等待,同样不占用线程;
+ * 使用HTTP/2的主机只建立一个连接,所有请求在其上多路复用,不受连接池上限限制.
+ * <p>
+ * 响应体的解码、打印及JSON解析在callbackExecutor上执行,不占用I/O线程;返回的CompletableFuture在该线程池上完成,
+ * 调用方追加的同步阶段(thenApply等)默认也在其上执行.请求失败时在I/O线程上完成.
+ * 取消返回的CompletableFuture会中止对应的请求
+ * <p>
+ * 需要自行引入org.apache.httpcomponents.client5:httpclient5依赖
+ *
+ * @author zhangbo
+ */
+@Getter
+@Setter
+@Slf4j
+public class SimpleAsyncHttpClient {
+
+    private static final String DEFAULT_CHARSET = "UTF-8";
+
+    private int timeout = 60;
+
+    /**
+     * 建立连接的超时时间,单位为毫秒,小于等于0时为timeout
+     */
+    private int connectTimeout;
+
+    /**
+     * 等待响应数据的超时时间,单位为毫秒,小于等于0时为timeout
+     */
+    private int readTimeout;
+
+    /**
+     * 从连接池获取连接的超时时间,单位为毫秒,小于等于0时为timeout
+     */
+    private int connectionRequestTimeout;
+
+    /**
+     * I/O线程数,小于等于0时为CPU核数
+     */
+    private int ioThreads = 0;
+
+    private int maxConnTotal = 200;
+
+    private int maxConnPerRoute = 50;
+
+    private HttpVersion httpVersion = HttpVersion.NEGOTIATE;
+
+    /**
+     * 已知支持HTTP/2的主机,格式为host或host:port,不论httpVersion如何均多路复用
+     */
+    private Set<String> http2Hosts = Collections.emptySet();
+
+    private SimpleHttpClient.LogLevel logLevel = SimpleHttpClient.LogLevel.NONE;
+
+    /**
+     * 解码及解析响应的线程池,为null时按callbackThreads创建
+     */
+    private Executor callbackExecutor;
+
+    /**
+     * 未指定callbackExecutor时创建的解析线程数,小于等于0时为CPU核数
+     */
+    private int callbackThreads = 0;
+
+    /**
+     * 由本客户端创建、关闭时一并关闭的解析线程池
+     */
+    private ExecutorService ownedCallbackExecutor;
+
+    /**
+     * 经连接池发出HTTP/1.1请求,httpVersion为HTTP_2时为null
+     */
+    private CloseableHttpAsyncClient closeableHttpAsyncClient;
+
+    /**
+     * 多路复用的HTTP/2请求,未使用HTTP/2时为null
+     */
+    private CloseableHttpAsyncClient h2HttpAsyncClient;
+
+    /**
+     * HTTP协议版本,不引用httpclient5的类型,配置类可在未引入依赖时加载
+     */
+    public enum HttpVersion {
+        /**
+         * 只使用HTTP/1.1
+         */
+        HTTP_1_1,
+        /**
+         * 所有请求使用HTTP/2并多路复用,https地址经ALPN协商,http地址使用h2c(无需升级协商).
+         * 服务端须支持HTTP/2
+         */
+        HTTP_2,
+        /**
+         * https地址经ALPN协商,服务端支持时使用HTTP/2,否则使用HTTP/1.1.
+         * 协商出的HTTP/2连接同样经连接池按请求独占,不做多路复用,需要多路复用的主机配置在http2Hosts中
+         */
+        NEGOTIATE
+    }
+
+    /**
+     * 初始化并启动CloseableHttpAsyncClient
+     */
+    private void init() {
+        RequestConfig requestConfig = RequestConfig.custom()
+                .setConnectTimeout(timeout(connectTimeout))
+                .setConnectionRequestTimeout(timeout(connectionRequestTimeout))
+                .setResponseTimeout(timeout(readTimeout))
+                .build();
+
+        IOReactorConfig ioReactorConfig = IOReactorConfig.custom()
+                .setIoThreadCount(ioThreads > 0 ? ioThreads : Runtime.getRuntime().availableProcessors())
+                .setSoTimeout(timeout(readTimeout))
+                .build();
+
+        if (httpVersion != HttpVersion.HTTP_2) {
+            PoolingAsyncClientConnectionManager connectionManager = PoolingAsyncClientConnectionManagerBuilder.create()
+                    .setMaxConnTotal(maxConnTotal)
+                    .setMaxConnPerRoute(maxConnPerRoute)
+                    .build();
+
+            closeableHttpAsyncClient = HttpAsyncClients.custom()
+                    .setConnectionManager(connectionManager)
+                    .setIOReactorConfig(ioReactorConfig)
+                    .setVersionPolicy(versionPolicy(httpVersion))
+                    .setDefaultRequestConfig(requestConfig)
+                    .build();
+            closeableHttpAsyncClient.start();
+        }
+
+        if (httpVersion == HttpVersion.HTTP_2 || !http2Hosts.isEmpty()) {
+            h2HttpAsyncClient = H2AsyncClientBuilder.create()
+                    .setIOReactorConfig(ioReactorConfig)
+                    .setH2Config(H2Config.custom().setPushEnabled(false).build())
+                    .setDefaultRequestConfig(requestConfig)
+                    .build();
+            h2HttpAsyncClient.start();
+        }
+
+        // 单核时CompletableFuture不使用ForkJoinPool.commonPool()而是每个任务新建线程,因此默认自行创建线程池
+        if (callbackExecutor == null) {
+            AtomicInteger threadNumber = new AtomicInteger();
+            ownedCallbackExecutor = Executors.newFixedThreadPool(
+                    callbackThreads > 0 ? callbackThreads : Runtime.getRuntime().availableProcessors(), runnable -> {
+                        Thread thread = new Thread(runnable, "httpclient-async-callback-" + threadNumber.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+            callbackExecutor = ownedCallbackExecutor;
+        }
+    }
+
+    private Timeout timeout(int millis) {
+        return millis > 0 ? Timeout.ofMilliseconds(millis) : Timeout.ofSeconds(timeout);
+    }
+
+    private static HttpVersionPolicy versionPolicy(HttpVersion httpVersion) {
+        return httpVersion == HttpVersion.HTTP_1_1 ? HttpVersionPolicy.FORCE_HTTP_1 : HttpVersionPolicy.NEGOTIATE;
+    }
+
+    /**
+     * POST请求
+     *
+     * @param url          URL地址
+     * @param requestParam 请求参数,通常是基于JSON格式的字符串
+     * @param charset      编码
+     * @return response
+     */
+    public CompletableFuture<String> postBySingleString(String url, String requestParam, String charset) {
+
+        customLog("url", url);
+
+        SimpleRequestBuilder builder = SimpleRequestBuilder.post(url).addHeader("Accept", "application/json");
+        if (!CommonValidateUtil.isEmpty(requestParam)) {
+            builder.setBody(requestParam, ContentType.APPLICATION_JSON.withCharset(charset));
+
+            customLog("params", requestParam);
+        }
+        return execute(builder.build(), charset);
+    }
+
+    /**
+     * POST请求
+     *
+     * @param url      URL地址
+     * @param paramMap 请求参数映射
+     * @param charset  编码
+     * @return response
+     */
+    public CompletableFuture<String> postByKeyValuePair(String url, Map<String, String> paramMap, String charset) {
+
+        customLog("url", url);
+
+        SimpleRequestBuilder builder = SimpleRequestBuilder.post(url);
+        if (paramMap != null && !paramMap.isEmpty()) {
+
+            customLog("params", paramMap);
+
+            builder.setBody(WWWFormCodec.format(parseFromParamMap(paramMap), Charset.forName(charset)),
+                    ContentType.APPLICATION_FORM_URLENCODED.withCharset(charset));
+        }
+        return execute(builder.build(), charset);
+    }
+
+    public CompletableFuture<String> post(String url, byte[] params, String charset) {
+
+        customLog("url", url);
+
+        SimpleRequestBuilder builder = SimpleRequestBuilder.post(url);
+        if (params != null && params.length > 0) {
+            builder.setBody(params, ContentType.APPLICATION_OCTET_STREAM);
+        }
+        return execute(builder.build(), charset);
+    }
+
+    public CompletableFuture<String> post(String url, byte[] params) {
+        return post(url, params, DEFAULT_CHARSET);
+    }
+
+    public <T> CompletableFuture<T> post(String url, byte[] params, Class<T> resultType) {
+        return parse(post(url, params), response -> parseResult(response, resultType));
+    }
+
+    public <T> CompletableFuture<T> post(String url, byte[] params, TypeReference<T> resultType) {
+        return parse(post(url, params), response -> parseResult(response, resultType));
+    }
+
+    public CompletableFuture<String> post(String url, String param) {
+        return postBySingleString(url, param, DEFAULT_CHARSET);
+    }
+
+    public <T> CompletableFuture<T> post(String url, String param, Class<T> resultType) {
+        return parse(post(url, param), response -> parseResult(response, resultType));
+    }
+
+    public <T> CompletableFuture<T> post(String url, String param, TypeReference<T> resultType) {
+        return parse(post(url, param), response -> parseResult(response, resultType));
+    }
+
+    public CompletableFuture<String> post(String url, Map<String, String> paramMap) {
+        return postByKeyValuePair(url, paramMap, DEFAULT_CHARSET);
+    }
+
+    public <T> CompletableFuture<T> post(String url, Map<String, String> paramMap, Class<T> type) {
+        return parse(post(url, paramMap), response -> parseResult(response, type));
+    }
+
+    public <T> CompletableFuture<T> post(String url, Map<String, String> paramMap, TypeReference<T> typeReference) {
+        return parse(post(url, paramMap), response -> parseResult(response, typeReference));
+    }
+
+    // ----- GET ----- //
+
+    public CompletableFuture<String> getByHeaders(String url, Map<String, String> headers) {
+
+        customLog("url", url);
+
+        SimpleRequestBuilder builder = SimpleRequestBuilder.get(url);
+
+        //添加请求头,非必须
+        if (headers != null && !headers.isEmpty()) {
+
+            customLog("headers", headers);
+
+            for (Map.Entry<String, String> entry : headers.entrySet()) {
+                builder.addHeader(entry.getKey(), entry.getValue());
+            }
+        }
+        return execute(builder.build(), DEFAULT_CHARSET);
+    }
+
+    public <T> CompletableFuture<T> getByHeaders(String url, Map<String, String> headers, Class<T> resultType) {
+        return parse(getByHeaders(url, headers), response -> parseResult(response, resultType));
+    }
+
+    public <T> CompletableFuture<T> getByHeaders(String url, Map<String, String> headers, TypeReference<T> resultType) {
+        return parse(getByHeaders(url, headers), response -> parseResult(response, resultType));
+    }
+
+    public CompletableFuture<String> get(String url) {
+        return getByHeaders(url, null);
+    }
+
+    public CompletableFuture<String> get(String url, Map<String, String> params) {
+        return get(appendQueryString(url, params));
+    }
+
+    public <T> CompletableFuture<T> get(String url, Class<T> type) {
+        return parse(get(url), response -> parseResult(response, type));
+    }
+
+    public <T> CompletableFuture<T> get(String url, Map<String, String> params, Class<T> type) {
+        return get(appendQueryString(url, params), type);
+    }
+
+    public <T> CompletableFuture<T> get(String url, TypeReference<T> typeReference) {
+        return parse(get(url), response -> parseResult(response, typeReference));
+    }
+
+    public <T> CompletableFuture<T> get(String url, Map<String, String> params, TypeReference<T> typeReference) {
+        return get(appendQueryString(url, params), typeReference);
+    }
+
+    /**
+     * 发出请求,响应体在callbackExecutor上按响应头中的编码解码,未指定时使用charset
+     */
+    private CompletableFuture<String> execute(SimpleHttpRequest request, String charset) {
+        CompletableFuture<SimpleHttpResponse> response = new CompletableFuture<>();
+        Future<SimpleHttpResponse> future = client(request).execute(request, new FutureCallback<SimpleHttpResponse>() {
+            @Override
+            public void completed(SimpleHttpResponse result) {
+                response.complete(result);
+            }
+
+            @Override
+            public void failed(Exception e) {
+                customLog("error", e);
+                response.completeExceptionally(new HttpRemoteException(e));
+            }
+
+            @Override
+            public void cancelled() {
+                response.completeExceptionally(new HttpRemoteException("request cancelled: " + request.getRequestUri()));
+            }
+        });
+        CompletableFuture<String> result = response.thenApplyAsync(value -> {
+            String body = bodyText(value, charset);
+
+            customLog("response", body);
+
+            return body;
+        }, callbackExecutor);
+        result.whenComplete((body, e) -> {
+            if (result.isCancelled()) {
+                future.cancel(true);
+            }
+        });
+        return result;
+    }
+
+    private CloseableHttpAsyncClient client(SimpleHttpRequest request) {
+        if (closeableHttpAsyncClient == null) {
+            return h2HttpAsyncClient;
+        }
+        if (h2HttpAsyncClient != null) {
+            URIAuthority authority = request.getAuthority();
+            if (authority != null && (http2Hosts.contains(authority.getHostName())
+                    || http2Hosts.contains(authority.getHostName() + ":" + port(request.getScheme(), authority)))) {
+                return h2HttpAsyncClient;
+            }
+        }
+        return closeableHttpAsyncClient;
+    }
+
+    /**
+     * URL中未写端口时按scheme取默认端口,以便匹配host:port形式的配置
+     */
+    private static int port(String scheme, URIAuthority authority) {
+        if (authority.getPort() > 0) {
+            return authority.getPort();
+        }
+        return "https".equalsIgnoreCase(scheme) ? 443 : 80;
+    }
+
+    /**
+     * 在callbackExecutor上解析响应,取消解析结果时同时中止请求
+     */
+    private <T> CompletableFuture<T> parse(CompletableFuture<String> response, Function<String, T> parser) {
+        CompletableFuture<T> result = response.thenApplyAsync(parser, callbackExecutor);
+        result.whenComplete((value, e) -> {
+            if (result.isCancelled()) {
+                response.cancel(true);
+            }
+        });
+        return result;
+    }
+
+    private String bodyText(SimpleHttpResponse response, String charset) {
+        byte[] bytes = response.getBodyBytes();
+        if (bytes == null) {
+            return null;
+        }
+        ContentType contentType = response.getContentType();
+        Charset responseCharset = contentType != null ? contentType.getCharset() : null;
+        return new String(bytes, responseCharset != null ? responseCharset : Charset.forName(charset));
+    }
+
+    private <T> T parseResult(String result, TypeReference<T> typeReference) {
+        if (CommonValidateUtil.isEmpty(result)) {
+            return null;
+        }
+        return JacksonJsonMapper.INSTANCE.fromJson(result, typeReference);
+    }
+
+    private <T> T parseResult(String result, Class<T> type) {
+        if (CommonValidateUtil.isEmpty(result)) {
+            return null;
+        }
+        return JacksonJsonMapper.INSTANCE.fromJson(result, type);
+    }
+
+    private String appendQueryString(String url, Map<String, String> params) {
+        if (params != null && !params.isEmpty()) {
+            String queryString = Joiner.on("&").withKeyValueSeparator("=").join(params);
+            url = url + "?" + queryString;
+        }
+        return url;
+    }
+
+    private List<NameValuePair> parseFromParamMap(Map<String, String> paramMap) {
+        List<NameValuePair> nameValuePairs = new ArrayList<>(paramMap.size());
+        for (Map.Entry<String, String> entry : paramMap.entrySet()) {
+            nameValuePairs.add(new BasicNameValuePair(entry.getKey(), entry.getValue()));
+        }
+        return nameValuePairs;
+    }
+
+    /**
+     * 关闭CloseableHttpAsyncClient,等待进行中的请求完成
+     */
+    private void destroy() {
+        if (closeableHttpAsyncClient != null) {
+            closeableHttpAsyncClient.close(CloseMode.GRACEFUL);
+        }
+        if (h2HttpAsyncClient != null) {
+            h2HttpAsyncClient.close(CloseMode.GRACEFUL);
+        }
+        if (ownedCallbackExecutor != null) {
+            ownedCallbackExecutor.shutdown();
+        }
+    }
+
+    private void customLog(String header, Object msg) {
+        logLevel.log(header, msg);
+    }
+
+}
@@ -1,7 +1,10 @@
 package com.zb.commons.http;
 
 
+import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.MappingIterator;
 import com.google.common.base.Joiner;
 import com.zb.commons.exception.HttpRemoteException;
 import com.zb.commons.json.JacksonJsonMapper;
@@ -10,6 +13,7 @@ import lombok.Getter;
 import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.http.HttpEntity;
+import org.apache.http.HttpHost;
 import org.apache.http.NameValuePair;
 import org.apache.http.client.config.RequestConfig;
 import org.apache.http.client.entity.EntityBuilder;
@@ -17,16 +21,34 @@ import org.apache.http.client.entity.UrlEncodedFormEntity;
 import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.methods.HttpPost;
+import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.entity.ContentType;
 import org.apache.http.entity.StringEntity;
 import org.apache.http.impl.client.CloseableHttpClient;
 import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
 import org.apache.http.message.BasicNameValuePair;
+import org.apache.http.pool.PoolStats;
 import org.apache.http.util.EntityUtils;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
 
 /**
@@ -44,12 +66,71 @@ public class SimpleHttpClient {
 
     private int timeout = 60;
 
+    /**
+     * 建立连接的超时时间,单位为毫秒,小于等于0时为timeout
+     */
+    private int connectTimeout;
+
+    /**
+     * 等待响应数据的超时时间,即相邻两次读到数据的最长间隔,单位为毫秒,小于等于0时为timeout
+     */
+    private int readTimeout;
+
+    /**
+     * 从连接池获取连接的超时时间,单位为毫秒,小于等于0时为timeout
+     */
+    private int connectionRequestTimeout;
+
+    /**
+     * 整个调用的时限,包括获取连接、建立连接、重试及读取响应体,到期时中止请求,单位为毫秒,小于等于0时不限
+     */
+    private long deadline;
+
     private int poolSize = 30;
+
+    /**
+     * 连接总数上限,小于等于0时为poolSize
+     */
+    private int maxConnTotal;
+
+    /**
+     * 每个主机的默认连接数上限,小于等于0时为poolSize
+     */
+    private int maxConnPerRoute;
+
+    /**
+     * 按主机单独设置的连接数上限,键为host、host:port或scheme://host:port,只写host时同时作用于http及https的默认端口
+     */
+    private Map<String, Integer> maxConnPerHost = Collections.emptyMap();
+
+    /**
+     * 连接的存活时间上限,单位为秒,到期后不再复用,小于等于0时不限
+     */
+    private int connTimeToLive;
+
+    /**
+     * 连接空闲超过该秒数后由后台线程关闭,小于等于0时不清理
+     */
+    private int maxIdleTime = 60;
+
+    /**
+     * 连接空闲超过该毫秒数后,复用前先检查是否可用;为0时按1处理,即空闲超过1毫秒的连接复用前都检查,小于0时不检查
+     */
+    private int validateAfterInactivity = 2000;
     
     private LogLevel logLevel = LogLevel.NONE;
 
     private CloseableHttpClient closeableHttpClient;
 
+    private PoolingHttpClientConnectionManager connectionManager;
+
+    private RequestConfig requestConfig;
+
+    /**
+     * 到期时中止请求,与withTimeouts创建的客户端共用
+     */
+    private ScheduledExecutorService deadlineScheduler;
+
     /**
      * 自定义日志级别枚举
      */
@@ -92,15 +173,131 @@ public class SimpleHttpClient {
      * 初始化CloseableHttpClient
      */
     private void init() {
-        RequestConfig requestConfig = RequestConfig.custom()
-                .setSocketTimeout(timeout * 1000)
-                .setConnectTimeout(timeout * 1000)
-                .setConnectionRequestTimeout(timeout * 1000)
-                .setStaleConnectionCheckEnabled(true)
+        // 不做每次请求前的阻塞式过期检查,由validateAfterInactivity及后台清理空闲连接代替
+        requestConfig = RequestConfig.custom()
+                .setConnectTimeout(timeoutMillis(connectTimeout))
+                .setSocketTimeout(timeoutMillis(readTimeout))
+                .setConnectionRequestTimeout(timeoutMillis(connectionRequestTimeout))
                 .build();
 
-        closeableHttpClient = HttpClientBuilder.create().setMaxConnTotal(poolSize).setMaxConnPerRoute(poolSize)
-                .setDefaultRequestConfig(requestConfig).build();
+        connectionManager = new PoolingHttpClientConnectionManager(connTimeToLive, TimeUnit.SECONDS);
+        connectionManager.setMaxTotal(maxConnTotal > 0 ? maxConnTotal : poolSize);
+        connectionManager.setDefaultMaxPerRoute(maxConnPerRoute > 0 ? maxConnPerRoute : poolSize);
+        // httpcore只在该值大于0时检查,0按1处理以免关闭检查
+        connectionManager.setValidateAfterInactivity(validateAfterInactivity == 0 ? 1 : validateAfterInactivity);
+        for (Map.Entry<String, Integer> entry : maxConnPerHost.entrySet()) {
+            for (HttpRoute route : routes(entry.getKey())) {
+                connectionManager.setMaxPerRoute(route, entry.getValue());
+            }
+        }
+
+        HttpClientBuilder builder = HttpClientBuilder.create().setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(requestConfig);
+        if (maxIdleTime > 0) {
+            builder.evictIdleConnections(maxIdleTime, TimeUnit.SECONDS);
+        }
+        if (connTimeToLive > 0) {
+            builder.evictExpiredConnections();
+        }
+        closeableHttpClient = builder.build();
+
+        ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "httpclient-deadline");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.setRemoveOnCancelPolicy(true);
+        deadlineScheduler = scheduler;
+    }
+
+    private int timeoutMillis(int millis) {
+        return millis > 0 ? millis : timeout * 1000;
+    }
+
+    /**
+     * 使用单独超时设置的客户端,与本客户端共用连接池,用于个别调用,如
+     * <pre>simpleHttpClient.withTimeouts(timeouts).get(url, Result.class)</pre>
+     * 本客户端初始化之后调用
+     * @param timeouts
+     * @return
+     */
+    public SimpleHttpClient withTimeouts(HttpTimeouts timeouts) {
+        SimpleHttpClient client = new SimpleHttpClient();
+        client.setTimeout(timeout);
+        client.setConnectTimeout(timeouts.getConnectTimeout() > 0 ? timeouts.getConnectTimeout() : requestConfig.getConnectTimeout());
+        client.setReadTimeout(timeouts.getReadTimeout() > 0 ? timeouts.getReadTimeout() : requestConfig.getSocketTimeout());
+        client.setConnectionRequestTimeout(timeouts.getConnectionRequestTimeout() > 0
+                ? timeouts.getConnectionRequestTimeout() : requestConfig.getConnectionRequestTimeout());
+        client.setDeadline(timeouts.getDeadline() > 0 ? timeouts.getDeadline() : deadline);
+        client.setPoolSize(poolSize);
+        client.setMaxConnTotal(maxConnTotal);
+        client.setMaxConnPerRoute(maxConnPerRoute);
+        client.setMaxConnPerHost(maxConnPerHost);
+        client.setConnTimeToLive(connTimeToLive);
+        client.setMaxIdleTime(maxIdleTime);
+        client.setValidateAfterInactivity(validateAfterInactivity);
+        client.setLogLevel(logLevel);
+        client.setCloseableHttpClient(closeableHttpClient);
+        client.setConnectionManager(connectionManager);
+        client.setDeadlineScheduler(deadlineScheduler);
+        client.setRequestConfig(RequestConfig.copy(requestConfig)
+                .setConnectTimeout(client.getConnectTimeout())
+                .setSocketTimeout(client.getReadTimeout())
+                .setConnectionRequestTimeout(client.getConnectionRequestTimeout())
+                .build());
+        return client;
+    }
+
+    /**
+     * 整个调用限时deadline毫秒的客户端,其他设置同本客户端
+     * @see #withTimeouts(HttpTimeouts)
+     */
+    public SimpleHttpClient withDeadline(long deadline) {
+        HttpTimeouts timeouts = new HttpTimeouts();
+        timeouts.setDeadline(deadline);
+        return withTimeouts(timeouts);
+    }
+
+    /**
+     * 连接池中各主机的使用情况,主机在首次请求后出现
+     * @return
+     */
+    public List<HttpPoolStats> poolStats() {
+        Set<HttpRoute> routes = connectionManager.getRoutes();
+        List<HttpPoolStats> stats = new ArrayList<>(routes.size());
+        for (HttpRoute route : routes) {
+            PoolStats poolStats = connectionManager.getStats(route);
+            HttpPoolStats routeStats = new HttpPoolStats();
+            routeStats.setRoute(routeName(route));
+            routeStats.setMax(poolStats.getMax());
+            routeStats.setLeased(poolStats.getLeased());
+            routeStats.setAvailable(poolStats.getAvailable());
+            routeStats.setPending(poolStats.getPending());
+            stats.add(routeStats);
+        }
+        return stats;
+    }
+
+    static String routeName(HttpRoute route) {
+        return route.getTargetHost().toURI();
+    }
+
+    /**
+     * maxConnPerHost的键对应的连接池路由,与请求时的路由一致:端口按协议补全,不经代理
+     */
+    private List<HttpRoute> routes(String host) {
+        if (host.contains("://")) {
+            return Collections.singletonList(route(HttpHost.create(host)));
+        }
+        HttpHost target = HttpHost.create(host);
+        return Arrays.asList(route(new HttpHost(target.getHostName(), target.getPort(), "http")),
+                route(new HttpHost(target.getHostName(), target.getPort(), "https")));
+    }
+
+    private HttpRoute route(HttpHost target) {
+        boolean secure = "https".equalsIgnoreCase(target.getSchemeName());
+        int port = target.getPort() > 0 ? target.getPort() : (secure ? 443 : 80);
+        return new HttpRoute(new HttpHost(target.getHostName(), port, target.getSchemeName()), null, secure);
     }
 
     /**
@@ -113,35 +310,15 @@ public class SimpleHttpClient {
      * @throws HttpRemoteException
      */
     public String postBySingleString(String url, String requestParam, String charset) {
-        
-        customLog("url", url);
-        
-        CloseableHttpClient httpClient = closeableHttpClient;
-        HttpPost httpPost = new HttpPost(url);
-        String body = null;
-        httpPost.addHeader("Content-Type", "application/json");
-        httpPost.addHeader("Accept", "application/json");
-        try {
-            if (!CommonValidateUtil.isEmpty(requestParam)) {
-                httpPost.setEntity(new StringEntity(requestParam, charset));
-                
-                customLog("params", requestParam);
-            }
+        return execute(jsonPost(url, requestParam, charset), (String) null);
+    }
 
-            CloseableHttpResponse httpResponse = httpClient.execute(httpPost);
-            HttpEntity entity = httpResponse.getEntity();
+    public <T> T postBySingleString(String url, String requestParam, String charset, Class<T> type) {
+        return execute(jsonPost(url, requestParam, charset), javaType(type));
+    }
 
-            body = EntityUtils.toString(entity);
-            
-            customLog("response", body);
-            
-            EntityUtils.consumeQuietly(entity);
-        } catch (IOException e) {
-            httpPost.abort();
-            customLog("error", e);
-            throw new HttpRemoteException(e);
-        }
-        return body;
+    public <T> T postBySingleString(String url, String requestParam, String charset, TypeReference<T> typeReference) {
+        return execute(jsonPost(url, requestParam, charset), javaType(typeReference));
     }
 
     /**
@@ -154,69 +331,11 @@ public class SimpleHttpClient {
      * @throws HttpRemoteException
      */
     public String postByKeyValuePair(String url, Map<String, String> paramMap, String charset) {
-        
-        customLog("url", url);
-        
-        CloseableHttpClient httpClient = closeableHttpClient;
-        HttpPost httpPost = new HttpPost(url);
-        String body = null;
-
-        try {
-            if (paramMap != null && !paramMap.isEmpty()) {
-                
-                customLog("params", paramMap);
-                
-                List<NameValuePair> params = parseFromParamMap(paramMap);
-                if (!params.isEmpty()) {
-                    httpPost.setEntity(new UrlEncodedFormEntity(params, charset));
-                }
-            }
-
-            CloseableHttpResponse httpResponse = httpClient.execute(httpPost);
-            HttpEntity entity = httpResponse.getEntity();
-
-            body = EntityUtils.toString(entity);
-
-            customLog("response", body);
-            
-            EntityUtils.consumeQuietly(entity);
-        } catch (IOException e) {
-            httpPost.abort();
-            customLog("error", e);
-            throw new HttpRemoteException(e);
-        }
-        return body;
+        return execute(formPost(url, paramMap, charset), (String) null);
     }
     
     public String post(String url, byte[] params, String charset) {
-        
-        customLog("url", url);
-        
-        CloseableHttpClient httpClient = closeableHttpClient;
-        HttpPost httpPost = new HttpPost(url);
-        String response = null;
-
-        try {
-            if (params != null && params.length > 0) {
-//                customLog("params", params);
-                HttpEntity httpEntity = EntityBuilder.create().setBinary(params).setContentEncoding(charset).build();
-                httpPost.setEntity(httpEntity);
-            }
-
-            CloseableHttpResponse httpResponse = httpClient.execute(httpPost);
-            HttpEntity httpResponseEntity = httpResponse.getEntity();
-
-            response = EntityUtils.toString(httpResponseEntity, charset);
-
-            customLog("response", response);
-            
-            EntityUtils.consumeQuietly(httpResponseEntity);
-        } catch (IOException e) {
-            httpPost.abort();
-            customLog("error", e);
-            throw new HttpRemoteException(e);
-        }
-        return response;
+        return execute(bytesPost(url, params, charset), charset);
     }
     
     public String post(String url, byte[] params) {
@@ -224,19 +343,25 @@ public class SimpleHttpClient {
     }
     
     public <T> T post(String url, byte[] params, Class<T> resultType) {
-        String response = post(url, params);
-        return parseResult(response, resultType);
+        return execute(bytesPost(url, params, DEFAULT_CHARSET), javaType(resultType));
     }
     
     public <T> T post(String url, byte[] params, TypeReference<T> resultType) {
-        String response = post(url, params);
-        return parseResult(response, resultType);
+        return execute(bytesPost(url, params, DEFAULT_CHARSET), javaType(resultType));
     }
 
     public String post(String url, String param) {
         return postBySingleString(url, param, DEFAULT_CHARSET);
     }
 
+    public <T> T post(String url, String param, Class<T> type) {
+        return postBySingleString(url, param, DEFAULT_CHARSET, type);
+    }
+
+    public <T> T post(String url, String param, TypeReference<T> typeReference) {
+        return postBySingleString(url, param, DEFAULT_CHARSET, typeReference);
+    }
+
     public String post(String url, Map<String, String> paramMap) {
         return postByKeyValuePair(url, paramMap, DEFAULT_CHARSET);
     }
@@ -262,13 +387,31 @@ public class SimpleHttpClient {
     }
     
     public <T> T postByKeyValuePair(String url, Map<String, String> paramMap, String charset, Class<T> type) {
-        String result = postByKeyValuePair(url, paramMap, charset);
-        return parseResult(result, type);
+        return execute(formPost(url, paramMap, charset), javaType(type));
     }
     
     public <T> T postByKeyValuePair(String url, Map<String, String> paramMap, String charset, TypeReference<T> typeReference) {
-        String result = postByKeyValuePair(url, paramMap, charset);
-        return parseResult(result, typeReference);
+        return execute(formPost(url, paramMap, charset), javaType(typeReference));
+    }
+
+    /**
+     * POST请求,逐个处理响应中JSON数组的元素,整个数组不会同时驻留内存
+     *
+     * @param url          URL地址
+     * @param requestParam 请求参数,通常是基于JSON格式的字符串
+     * @param arrayPath    数组的JSON Pointer,如"/data/list",为空时为根数组
+     * @param elementType  元素类型
+     * @param action       元素的处理
+     * @return 元素个数
+     * @throws HttpRemoteException
+     * @see JacksonJsonMapper#readValues(java.io.InputStream, String, Class)
+     */
+    public <T> long postForEach(String url, String requestParam, String arrayPath, Class<T> elementType, Consumer<? super T> action) {
+        return forEach(jsonPost(url, requestParam, DEFAULT_CHARSET), arrayPath, elementType, action);
+    }
+
+    public <T> long postForEach(String url, Map<String, String> paramMap, String arrayPath, Class<T> elementType, Consumer<? super T> action) {
+        return forEach(formPost(url, paramMap, DEFAULT_CHARSET), arrayPath, elementType, action);
     }
 
     // ----- GET ----- //
@@ -281,54 +424,15 @@ public class SimpleHttpClient {
      * @throws HttpRemoteException
      */
     public String getByHeaders(String url, Map<String, String> headers) {
-        
-        customLog("url", url);
-        
-        CloseableHttpClient httpClient = closeableHttpClient;
-        HttpGet httpGet = null;
-        String body = null;
-
-        try {
-            //创建HTTP GET请求
-            httpGet = new HttpGet(url);
-
-            //添加请求头,非必须
-            if (headers != null && !headers.isEmpty()) {
-
-                customLog("headers", headers);
-                
-                for (Map.Entry<String, String> entry : headers.entrySet()) {
-                    httpGet.addHeader(entry.getKey(), entry.getValue());
-                }
-            }
-
-            CloseableHttpResponse httpResponse = httpClient.execute(httpGet);
-
-            //获得响应体
-            HttpEntity entity = httpResponse.getEntity();
-
-            body = EntityUtils.toString(entity);
-
-            customLog("response", body);
-            
-            EntityUtils.consumeQuietly(entity);
-        } catch (IOException e) {
-            httpGet.abort();
-            customLog("error", e);
-            throw new HttpRemoteException(e);
-        }
-        
-        return body;
+        return execute(headersGet(url, headers), (String) null);
     }
 
     public <T> T getByHeaders(String url, Map<String, String> headers, Class<T> resultType) {
-        String response = getByHeaders(url, headers);
-        return parseResult(response, resultType);
+        return execute(headersGet(url, headers), javaType(resultType));
     }
 
     public <T> T getByHeaders(String url, Map<String, String> headers, TypeReference<T> resultType) {
-        String response = getByHeaders(url, headers);
-        return parseResult(response, resultType);
+        return execute(headersGet(url, headers), javaType(resultType));
     }
 
     public String get(String url) {
@@ -341,8 +445,7 @@ public class SimpleHttpClient {
     }
 
     public <T> T get(String url, Class<T> type) {
-        String result = get(url);
-        return parseResult(result, type);
+        return getByHeaders(url, null, type);
     }
 
     public <T> T get(String url, Map<String, String> params, Class<T> type) {
@@ -351,8 +454,7 @@ public class SimpleHttpClient {
     }
 
     public <T> T get(String url, TypeReference<T> typeReference) {
-        String result = get(url);
-        return parseResult(result, typeReference);
+        return getByHeaders(url, null, typeReference);
     }
 
     public <T> T get(String url, Map<String, String> params, TypeReference<T> typeReference) {
@@ -360,18 +462,238 @@ public class SimpleHttpClient {
         return get(url, typeReference);
     }
 
-    private <T> T parseResult(String result, TypeReference<T> typeReference) {
-        if (CommonValidateUtil.isEmpty(result)) {
-            return null;
+    /**
+     * GET请求,逐个处理响应中JSON数组的元素
+     *
+     * @see #postForEach(String, String, String, Class, Consumer)
+     */
+    public <T> long getForEach(String url, String arrayPath, Class<T> elementType, Consumer<? super T> action) {
+        return forEach(headersGet(url, null), arrayPath, elementType, action);
+    }
+
+    public <T> long getForEach(String url, Map<String, String> params, String arrayPath, Class<T> elementType, Consumer<? super T> action) {
+        url = appendQueryString(url, params);
+        return getForEach(url, arrayPath, elementType, action);
+    }
+
+    private HttpPost jsonPost(String url, String requestParam, String charset) {
+
+        customLog("url", url);
+
+        HttpPost httpPost = new HttpPost(url);
+        httpPost.addHeader("Content-Type", "application/json");
+        httpPost.addHeader("Accept", "application/json");
+        if (!CommonValidateUtil.isEmpty(requestParam)) {
+            httpPost.setEntity(new StringEntity(requestParam, charset));
+
+            customLog("params", requestParam);
+        }
+        return httpPost;
+    }
+
+    private HttpPost formPost(String url, Map<String, String> paramMap, String charset) {
+
+        customLog("url", url);
+
+        HttpPost httpPost = new HttpPost(url);
+        if (paramMap != null && !paramMap.isEmpty()) {
+
+            customLog("params", paramMap);
+
+            List<NameValuePair> params = parseFromParamMap(paramMap);
+            if (!params.isEmpty()) {
+                httpPost.setEntity(new UrlEncodedFormEntity(params, Charset.forName(charset)));
+            }
+        }
+        return httpPost;
+    }
+
+    private HttpPost bytesPost(String url, byte[] params, String charset) {
+
+        customLog("url", url);
+
+        HttpPost httpPost = new HttpPost(url);
+        if (params != null && params.length > 0) {
+//            customLog("params", params);
+            HttpEntity httpEntity = EntityBuilder.create().setBinary(params).setContentEncoding(charset).build();
+            httpPost.setEntity(httpEntity);
+        }
+        return httpPost;
+    }
+
+    private HttpGet headersGet(String url, Map<String, String> headers) {
+
+        customLog("url", url);
+
+        //创建HTTP GET请求
+        HttpGet httpGet = new HttpGet(url);
+
+        //添加请求头,非必须
+        if (headers != null && !headers.isEmpty()) {
+
+            customLog("headers", headers);
+
+            for (Map.Entry<String, String> entry : headers.entrySet()) {
+                httpGet.addHeader(entry.getKey(), entry.getValue());
+            }
+        }
+        return httpGet;
+    }
+
+    /**
+     * 响应体读成String
+     *
+     * @param charset 响应未声明编码时使用的编码,为空时为ISO-8859-1
+     */
+    private String execute(HttpRequestBase request, String charset) {
+        request.setConfig(requestConfig);
+        ScheduledFuture<?> abort = scheduleAbort(request);
+        try (CloseableHttpResponse httpResponse = closeableHttpClient.execute(request)) {
+            HttpEntity entity = httpResponse.getEntity();
+
+            String body = EntityUtils.toString(entity, charset);
+
+            customLog("response", body);
+
+            EntityUtils.consumeQuietly(entity);
+            return body;
+        } catch (IOException e) {
+            throw remoteException(request, abort, e);
+        } finally {
+            cancelAbort(abort);
+        }
+    }
+
+    /**
+     * 响应体按JSON反序列化,没有响应体时返回Null
+     * <p>
+     * 响应为Unicode编码且日志级别为NONE时直接从输入流反序列化,不再先读成String;否则为打印响应先读成String.
+     * 响应未声明编码时按JSON的默认编码UTF-8处理
+     */
+    private <T> T execute(HttpRequestBase request, JavaType resultType) {
+        request.setConfig(requestConfig);
+        ScheduledFuture<?> abort = scheduleAbort(request);
+        try (CloseableHttpResponse httpResponse = closeableHttpClient.execute(request)) {
+            HttpEntity entity = httpResponse.getEntity();
+            if (entity == null) {
+                customLog("response", null);
+                return null;
+            }
+
+            T result;
+            Charset charset = responseCharset(entity);
+            if (logLevel == LogLevel.NONE && isUnicode(charset)) {
+                result = JacksonJsonMapper.INSTANCE.fromJson(entity.getContent(), resultType);
+            } else {
+                String body = EntityUtils.toString(entity, charset);
+
+                customLog("response", body);
+
+                result = JacksonJsonMapper.INSTANCE.fromJson(body, resultType);
+            }
+
+            EntityUtils.consumeQuietly(entity);
+            return result;
+        } catch (IOException | UncheckedIOException e) {
+            throw remoteException(request, abort, e instanceof UncheckedIOException ? e.getCause() : e);
+        } finally {
+            cancelAbort(abort);
+        }
+    }
+
+    /**
+     * 逐个反序列化响应中JSON数组的元素交给action处理,只打印响应状态
+     * <p>
+     * JSON格式错误抛出RuntimeException,与反序列化String时一致;action抛出的异常原样抛出;未读完的连接被断开而不是放回连接池
+     */
+    private <T> long forEach(HttpRequestBase request, String arrayPath, Class<T> elementType, Consumer<? super T> action) {
+        request.setConfig(requestConfig);
+        ScheduledFuture<?> abort = scheduleAbort(request);
+        try (CloseableHttpResponse httpResponse = closeableHttpClient.execute(request)) {
+            HttpEntity entity = httpResponse.getEntity();
+
+            customLog("response", httpResponse.getStatusLine());
+
+            long count = 0;
+            if (entity == null) {
+                return count;
+            }
+            Charset charset = responseCharset(entity);
+            InputStream content = entity.getContent();
+            try (MappingIterator<T> iterator = isUnicode(charset)
+                    ? JacksonJsonMapper.INSTANCE.readValues(content, arrayPath, elementType)
+                    : JacksonJsonMapper.INSTANCE.readValues(new InputStreamReader(content, charset), arrayPath, elementType)) {
+                try {
+                    while (iterator.hasNextValue()) {
+                        action.accept(iterator.nextValue());
+                        count++;
+                    }
+                } catch (JsonProcessingException | RuntimeException | Error e) {
+                    // 须在关闭iterator之前中止,否则关闭响应流时会读完剩余的响应体
+                    request.abort();
+                    throw e;
+                }
+            }
+
+            EntityUtils.consumeQuietly(entity);
+            return count;
+        } catch (JsonProcessingException e) {
+            request.abort();
+            customLog("error", e);
+            throw new RuntimeException(e);
+        } catch (IOException | UncheckedIOException e) {
+            throw remoteException(request, abort, e instanceof UncheckedIOException ? e.getCause() : e);
+        } finally {
+            cancelAbort(abort);
         }
-        return JacksonJsonMapper.INSTANCE.fromJson(result, typeReference);
     }
 
-    private <T> T parseResult(String result, Class<T> type) {
-        if (CommonValidateUtil.isEmpty(result)) {
+    /**
+     * 设置了deadline时,到期中止请求:等待连接、建立连接、重试及读取响应体均随之结束
+     */
+    private ScheduledFuture<?> scheduleAbort(HttpRequestBase request) {
+        if (deadline <= 0) {
             return null;
         }
-        return JacksonJsonMapper.INSTANCE.fromJson(result, type);
+        return deadlineScheduler.schedule(request::abort, deadline, TimeUnit.MILLISECONDS);
+    }
+
+    private void cancelAbort(ScheduledFuture<?> abort) {
+        if (abort != null) {
+            abort.cancel(false);
+        }
+    }
+
+    private HttpRemoteException remoteException(HttpRequestBase request, ScheduledFuture<?> abort, Throwable e) {
+        request.abort();
+        customLog("error", e);
+        if (abort != null && abort.isDone() && !abort.isCancelled()) {
+            return new HttpRemoteException("deadline of " + deadline + "ms exceeded: " + request.getURI(), e);
+        }
+        return new HttpRemoteException(e);
+    }
+
+    private Charset responseCharset(HttpEntity entity) {
+        ContentType contentType = ContentType.getLenient(entity);
+        if (contentType != null && contentType.getCharset() != null) {
+            return contentType.getCharset();
+        }
+        return StandardCharsets.UTF_8;
+    }
+
+    /**
+     * Jackson可从字节流自动识别的编码
+     */
+    private boolean isUnicode(Charset charset) {
+        return charset.name().startsWith("UTF-");
+    }
+
+    private JavaType javaType(Class<?> type) {
+        return JacksonJsonMapper.INSTANCE.getMapper().constructType(type);
+    }
+
+    private JavaType javaType(TypeReference<?> typeReference) {
+        return JacksonJsonMapper.INSTANCE.getMapper().getTypeFactory().constructType(typeReference);
     }
 
     private String appendQueryString(String url, Map<String, String> params) {
@@ -400,6 +722,7 @@ public class SimpleHttpClient {
      * 关闭CloseableHttpClient Instance
      */
     private void destroy() {
+        deadlineScheduler.shutdownNow();
         try {
             closeableHttpClient.close();
         } catch (IOException e) {
@@ -6,18 +6,24 @@
 package com.zb.commons.json;
 
 import com.fasterxml.jackson.annotation.JsonInclude.Include;
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.JavaType;
 import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.MappingIterator;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.databind.util.JSONPObject;
 import com.zb.commons.validate.CommonValidateUtil;
 import lombok.extern.slf4j.Slf4j;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.UncheckedIOException;
 import java.util.Collection;
 import java.util.Map;
 import java.util.TimeZone;
@@ -153,6 +159,70 @@ public class JacksonJsonMapper {
         }
     }
 
+    /**
+     * 直接从字节流反序列化, 不先读成String, 适合较大的HTTP响应体. 按JSON规范自动识别UTF-8/16/32编码.
+     * <p>
+     * 流为空或"null"时返回Null. 读取完成后关闭输入流. JSON格式错误抛出RuntimeException, 读取流失败抛出UncheckedIOException.
+     */
+    public <T> T fromJson(InputStream in, Class<T> clazz) {
+        return fromJson(in, mapper.constructType(clazz));
+    }
+
+    public <T> T fromJson(InputStream in, TypeReference typeReference) {
+        return fromJson(in, mapper.getTypeFactory().constructType(typeReference));
+    }
+
+    public <T> T fromJson(InputStream in, JavaType javaType) {
+        try (JsonParser parser = mapper.getFactory().createParser(in)) {
+            if (parser.nextToken() == null) {
+                return null;
+            }
+            return mapper.readValue(parser, javaType);
+        } catch (JsonProcessingException e) {
+            log.error("parse json stream error:" + javaType, e);
+            throw new RuntimeException(e);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * 逐个读取JSON数组的元素, 已读过的元素可被回收, 整个数组不会同时驻留内存.
+     * <p>
+     * arrayPath为JSON Pointer, 如响应{"code":0,"data":{"list":[...]}}中的数组为"/data/list", 为空时读取根数组;
+     * 路径不存在时没有元素, 指向的不是数组时作为唯一的元素. 用完须关闭返回的迭代器, 同时关闭输入流.
+     * 迭代中的格式错误或读取失败由hasNextValue()/nextValue()抛出IOException, hasNext()/next()则包装为RuntimeException.
+     */
+    public <T> MappingIterator<T> readValues(InputStream in, String arrayPath, Class<T> clazz) {
+        try {
+            return readerAt(arrayPath, clazz).readValues(in);
+        } catch (JsonProcessingException e) {
+            log.error("parse json stream error:" + clazz, e);
+            throw new RuntimeException(e);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * 同readValues(InputStream, String, Class), 用于非Unicode编码的输入
+     */
+    public <T> MappingIterator<T> readValues(Reader reader, String arrayPath, Class<T> clazz) {
+        try {
+            return readerAt(arrayPath, clazz).readValues(reader);
+        } catch (JsonProcessingException e) {
+            log.error("parse json stream error:" + clazz, e);
+            throw new RuntimeException(e);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private ObjectReader readerAt(String arrayPath, Class<?> clazz) {
+        ObjectReader reader = mapper.readerFor(clazz);
+        return CommonValidateUtil.isEmpty(arrayPath) ? reader : reader.at(arrayPath);
+    }
+
     /**
      * 构造Collection类型.
      */
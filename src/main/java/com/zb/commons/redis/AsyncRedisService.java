@@ -0,0 +1,134 @@
+package com.zb.commons.redis;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 非阻塞的Redis Service Interface
+ * <p>
+ * 与{@link RedisService}使用相同的键名规则,所有方法立即返回,结果通过CompletableFuture异步获得.
+ * 同时发起的多个命令共用一个多路复用连接并在连接上流水线发送,不占用调用方线程
+ *
+ * @author zhangbo
+ */
+public interface AsyncRedisService {
+
+    /**
+     * 缓存.基于 Redis String 类型
+     * @param key
+     * @param value
+     * @param expire 小于等于0时不设置过期时间
+     * @return
+     */
+    public CompletableFuture<Void> put(String key, String value, int expire);
+
+    /**
+     * 根据字符串类型键的键名获取匹配的键值
+     * @param key
+     * @return
+     */
+    public CompletableFuture<String> get(String key);
+
+    /**
+     * 批量获取字符串类型键的键值
+     * @param keys
+     * @return 与keys顺序一致,不存在的键对应null
+     */
+    public CompletableFuture<List<String>> multiGet(List<String> keys);
+
+    /**
+     * 根据键名删除匹配的键
+     * @param key
+     * @return
+     */
+    public CompletableFuture<Void> delete(String key);
+
+    /**
+     * 判断指定的键是否存在
+     * @param key
+     * @return
+     */
+    public CompletableFuture<Boolean> keyExists(String key);
+
+    /**
+     * 增加指定字符串类型键的键值
+     * @param key
+     * @param incrNum
+     * @return
+     */
+    public CompletableFuture<Long> stringIncr(String key, long incrNum);
+
+    /**
+     * 缓存.基于 Redis Hash 类型,写入与过期时间原子完成
+     * @param key
+     * @param field
+     * @param value
+     * @param expire 小于等于0时不设置过期时间
+     * @return
+     */
+    public CompletableFuture<Void> hashPut(String key, String field, String value, int expire);
+
+    /**
+     * 根据散列类型键的键名和字段名获取匹配的键值
+     * @param key
+     * @param field
+     * @return
+     */
+    public CompletableFuture<String> hashGet(String key, String field);
+
+    /**
+     * 根据散列类型键的键名获取该散列的全部数据
+     * @param key
+     * @return
+     */
+    public CompletableFuture<Map<String, String>> hashGetAll(String key);
+
+    /**
+     * 批量写入散列字段
+     * @param key
+     * @param values
+     * @return
+     */
+    public CompletableFuture<Void> hashPutAll(String key, Map<String, String> values);
+
+    /**
+     * 从列表左边插入元素,插入与过期时间原子完成
+     * @param key
+     * @param value
+     * @param expire 小于等于0时不设置过期时间
+     * @return 列表长度
+     */
+    public CompletableFuture<Long> createOrUpdateListByLeftPush(String key, String value, int expire);
+
+    /**
+     * 根据列表类型键的键名获取匹配的 Redis List
+     * @param key
+     * @param startIndex
+     * @param endIndex
+     * @return
+     */
+    public CompletableFuture<List<String>> getList(String key, long startIndex, long endIndex);
+
+    /**
+     * 根据列表类型键的键名获取匹配的 Redis List Size
+     * @param key
+     * @return
+     */
+    public CompletableFuture<Long> getListLength(String key);
+
+    /**
+     * 为指定的键设置过期时间
+     * @param key
+     * @param expire 单位为秒
+     * @return
+     */
+    public CompletableFuture<Boolean> setTTL(String key, int expire);
+
+    /**
+     * 获取指定的键的剩余过期时间
+     * @param key
+     * @return 单位为秒
+     */
+    public CompletableFuture<Long> getTTL(String key);
+}
@@ -0,0 +1,84 @@
+package com.zb.commons.redis;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 批量操作的结果
+ * <p>
+ * 结果与输入顺序一一对应;单个键失败时仅记录该位置的异常,不影响其余键
+ *
+ * @author zhangbo
+ */
+public class BatchResult<T> {
+
+    private final List<T> values;
+
+    /**
+     * 跨节点批量操作时各节点并行写入
+     */
+    private final Map<Integer, Exception> errors = Collections.synchronizedMap(new TreeMap<>());
+
+    public BatchResult(int size) {
+        this.values = new ArrayList<>(Collections.<T>nCopies(size, null));
+    }
+
+    void set(int index, T value) {
+        values.set(index, value);
+        // 重试成功后清除之前的失败记录
+        errors.remove(index);
+    }
+
+    void fail(int index, Exception e) {
+        errors.put(index, e);
+    }
+
+    /**
+     * 获取指定位置的结果,失败或不存在时返回null
+     * @param index
+     * @return
+     */
+    public T get(int index) {
+        return values.get(index);
+    }
+
+    /**
+     * 指定位置是否执行成功
+     * @param index
+     * @return
+     */
+    public boolean isSuccess(int index) {
+        return !errors.containsKey(index);
+    }
+
+    /**
+     * 是否存在失败的键
+     * @return
+     */
+    public boolean hasErrors() {
+        return !errors.isEmpty();
+    }
+
+    /**
+     * 按输入顺序排列的全部结果
+     * @return
+     */
+    public List<T> getValues() {
+        return Collections.unmodifiableList(values);
+    }
+
+    /**
+     * 失败位置及其异常
+     * @return
+     */
+    public Map<Integer, Exception> getErrors() {
+        return Collections.unmodifiableMap(errors);
+    }
+
+    public int size() {
+        return values.size();
+    }
+}
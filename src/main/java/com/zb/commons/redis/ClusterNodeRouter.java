@@ -0,0 +1,243 @@
+package com.zb.commons.redis;
+
+import lombok.extern.slf4j.Slf4j;
+import redis.clients.jedis.HostAndPort;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.JedisPoolConfig;
+import redis.clients.jedis.exceptions.JedisClusterException;
+import redis.clients.jedis.exceptions.JedisException;
+import redis.clients.jedis.exceptions.JedisMovedDataException;
+import redis.clients.jedis.exceptions.JedisRedirectionException;
+import redis.clients.util.JedisClusterCRC16;
+import redis.clients.util.Pool;
+import redis.clients.util.SafeEncoder;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * 集群模式的按槽路由
+ * <p>
+ * 启动时通过CLUSTER SLOTS获取槽分布,每个主节点一个连接池.收到MOVED或主节点连接失败时重新获取槽分布,
+ * 不再负责任何槽的节点的连接池随即关闭;收到ASK时仅对该条命令转向目标节点.
+ * 键名可使用hash tag({...})将相关的键放在同一个槽
+ *
+ * @author zhangbo
+ */
+@Slf4j
+public class ClusterNodeRouter implements RedisNodeRouter {
+
+    private static final int SLOT_COUNT = 16384;
+
+    /**
+     * 连接失败触发重新获取槽分布的最小间隔,避免节点宕机时每条失败的命令都请求一次
+     */
+    private static final long MIN_REFRESH_INTERVAL_MILLIS = 100;
+
+    private final Set<HostAndPort> seeds;
+
+    private final JedisPoolConfig poolConfig;
+
+    private final int timeout;
+
+    private final String password;
+
+    private final int maxRedirects;
+
+    private final ConcurrentMap<String, JedisPool> nodes = new ConcurrentHashMap<>();
+
+    private volatile Pool<Jedis>[] slots;
+
+    private volatile long nextRefreshAt;
+
+    /**
+     * @param seeds        初始节点,任一可用即可获取完整的槽分布
+     * @param poolConfig   每个节点的连接池配置
+     * @param timeout      连接及读取超时时间,单位为毫秒
+     * @param password
+     * @param maxRedirects 单条命令最多跟随的重定向次数
+     */
+    public ClusterNodeRouter(Set<HostAndPort> seeds, JedisPoolConfig poolConfig, int timeout, String password, int maxRedirects) {
+        this.seeds = new LinkedHashSet<>(seeds);
+        this.poolConfig = poolConfig;
+        this.timeout = timeout;
+        this.password = password;
+        this.maxRedirects = maxRedirects;
+        refresh();
+    }
+
+    @Override
+    public Pool<Jedis> master(String redisKey) {
+        Pool<Jedis> pool = slots[JedisClusterCRC16.getSlot(redisKey)];
+        if (pool == null) {
+            throw new JedisClusterException("no reachable node serves slot of key [" + redisKey + "]");
+        }
+        return pool;
+    }
+
+    @Override
+    public Pool<Jedis> master(byte[] redisKey) {
+        Pool<Jedis> pool = slots[JedisClusterCRC16.getSlot(redisKey)];
+        if (pool == null) {
+            throw new JedisClusterException("no reachable node serves slot of key [" + SafeEncoder.encode(redisKey) + "]");
+        }
+        return pool;
+    }
+
+    /**
+     * 副本连接需先执行READONLY才能读取,按连接池借出的连接无法保证这一点,因此只读命令仍在主节点执行
+     */
+    @Override
+    public Pool<Jedis> read(String redisKey) {
+        return master(redisKey);
+    }
+
+    @Override
+    public Pool<Jedis> read(byte[] redisKey) {
+        return master(redisKey);
+    }
+
+    @Override
+    public Collection<Pool<Jedis>> masters() {
+        Set<Pool<Jedis>> masters = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (Pool<Jedis> pool : slots) {
+            if (pool != null) {
+                masters.add(pool);
+            }
+        }
+        return new ArrayList<>(masters);
+    }
+
+    @Override
+    public Map<String, Pool<Jedis>> pools() {
+        return new LinkedHashMap<>(nodes);
+    }
+
+    @Override
+    public Pool<Jedis> redirect(JedisRedirectionException e) {
+        Pool<Jedis> target = node(e.getTargetNode());
+        // 并发收到的MOVED只需重新获取一次槽分布
+        if (e instanceof JedisMovedDataException && slots[e.getSlot()] != target) {
+            synchronized (this) {
+                if (slots[e.getSlot()] != target) {
+                    refresh();
+                }
+            }
+        }
+        return target;
+    }
+
+    /**
+     * 故障转移后原主节点的槽由副本接管,重新获取槽分布后命令即可路由到新的主节点
+     */
+    @Override
+    public void onConnectionFailure(Pool<Jedis> pool) {
+        if (!serves(pool)) {
+            return;
+        }
+        synchronized (this) {
+            if (serves(pool) && System.currentTimeMillis() >= nextRefreshAt) {
+                try {
+                    refresh();
+                } catch (JedisException e) {
+                    log.warn("failed to refresh cluster slots after connection failure", e);
+                }
+            }
+        }
+    }
+
+    @Override
+    public int getMaxRedirects() {
+        return maxRedirects;
+    }
+
+    @Override
+    public void destroy() {
+        for (JedisPool pool : nodes.values()) {
+            pool.destroy();
+        }
+    }
+
+    /**
+     * 依次向已知节点及初始节点请求槽分布,直到成功
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public synchronized void refresh() {
+        Set<HostAndPort> candidates = new LinkedHashSet<>();
+        for (String node : nodes.keySet()) {
+            candidates.add(HostAndPort.parseString(node));
+        }
+        candidates.addAll(seeds);
+        JedisException failure = null;
+        for (HostAndPort candidate : candidates) {
+            Jedis jedis = null;
+            try {
+                jedis = node(candidate).getResource();
+                Pool<Jedis>[] table = new Pool[SLOT_COUNT];
+                for (Object range : jedis.clusterSlots()) {
+                    List<Object> info = (List<Object>) range;
+                    List<Object> master = (List<Object>) info.get(2);
+                    String host = SafeEncoder.encode((byte[]) master.get(0));
+                    // 节点不知道自己的地址时返回空字符串,此时即为当前连接的节点
+                    Pool<Jedis> pool = node(new HostAndPort(host.isEmpty() ? candidate.getHost() : host,
+                            ((Long) master.get(1)).intValue()));
+                    for (int slot = ((Long) info.get(0)).intValue(); slot <= ((Long) info.get(1)).intValue(); slot++) {
+                        table[slot] = pool;
+                    }
+                }
+                slots = table;
+                nextRefreshAt = System.currentTimeMillis() + MIN_REFRESH_INTERVAL_MILLIS;
+                prune(table);
+                return;
+            } catch (JedisException e) {
+                log.warn("failed to fetch cluster slots from {}", candidate, e);
+                failure = e;
+            } finally {
+                if (jedis != null) {
+                    jedis.close();
+                }
+            }
+        }
+        throw new JedisClusterException("could not fetch cluster slots from any node", failure);
+    }
+
+    /**
+     * 关闭不再负责任何槽的节点(下线或已降为副本)的连接池
+     */
+    private void prune(Pool<Jedis>[] table) {
+        Set<Pool<Jedis>> serving = Collections.newSetFromMap(new IdentityHashMap<>());
+        Collections.addAll(serving, table);
+        nodes.entrySet().removeIf(entry -> {
+            if (serving.contains(entry.getValue())) {
+                return false;
+            }
+            log.info("cluster node {} serves no slot, closing its pool", entry.getKey());
+            entry.getValue().destroy();
+            return true;
+        });
+    }
+
+    private boolean serves(Pool<Jedis> pool) {
+        for (Pool<Jedis> slot : slots) {
+            if (slot == pool) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private Pool<Jedis> node(HostAndPort hostAndPort) {
+        return nodes.computeIfAbsent(hostAndPort.toString(),
+                key -> new JedisPool(poolConfig, hostAndPort.getHost(), hostAndPort.getPort(), timeout, password));
+    }
+}
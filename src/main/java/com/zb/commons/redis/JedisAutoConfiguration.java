@@ -1,25 +1,69 @@
 package com.zb.commons.redis;
 
+import io.lettuce.core.ReadFrom;
+import io.lettuce.core.RedisClient;
+import io.lettuce.core.RedisURI;
+import io.lettuce.core.api.StatefulRedisConnection;
+import io.lettuce.core.cluster.RedisClusterClient;
+import io.lettuce.core.cluster.api.StatefulRedisClusterConnection;
+import io.lettuce.core.codec.StringCodec;
+import io.lettuce.core.masterslave.MasterSlave;
+import io.lettuce.core.masterslave.StatefulRedisMasterSlaveConnection;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.AutoConfigureBefore;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.data.redis.RedisAutoConfiguration;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.TaskExecutor;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.util.ClassUtils;
+import redis.clients.jedis.HostAndPort;
+import redis.clients.jedis.Jedis;
 import redis.clients.jedis.JedisPool;
 import redis.clients.jedis.JedisPoolConfig;
+import redis.clients.jedis.JedisSentinelPool;
 import redis.clients.jedis.Protocol;
+import redis.clients.jedis.exceptions.JedisException;
+import redis.clients.util.Pool;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 
 /**
  * Jedis配置
+ * <p>
+ * 默认RedisTemplate使用spring.redis.*配置的连接工厂,与jedisPool各自维护连接;
+ * jedis.single-stack=true时两者共用jedisPool(集群模式不支持).需先于RedisAutoConfiguration处理,以便替换其连接工厂.
+ * jedis.mode选择单机、哨兵或集群部署,直接使用Jedis的操作经RedisNodeRouter路由到键所在节点
  * 
  * @author zhangbo
  */
+@Slf4j
 @Configuration
+@AutoConfigureBefore(RedisAutoConfiguration.class)
 @EnableConfigurationProperties(value = JedisProperties.class)
 @ConditionalOnProperty(prefix = "jedis", value = "enabled", havingValue = "true")
 public class JedisAutoConfiguration {
@@ -28,6 +72,7 @@ public class JedisAutoConfiguration {
 	private JedisProperties jedisProperties;
 
 	@Bean
+	@ConditionalOnProperty(prefix = "jedis", value = "mode", havingValue = "standalone", matchIfMissing = true)
 	public JedisPool jedisPool(JedisPoolConfig config) {
 		return new JedisPool(config, 
 				jedisProperties.getHost(), 
@@ -36,6 +81,31 @@ public class JedisAutoConfiguration {
 				jedisProperties.getPassword());
 	}
 
+	//按部署模式路由到各节点的连接池
+	@Bean(destroyMethod = "destroy")
+	public RedisNodeRouter redisNodeRouter() {
+		JedisPoolConfig config = jedisPoolConfig();
+		boolean readFromReplicas = jedisProperties.getReadFrom() == JedisProperties.ReadFrom.REPLICA_PREFERRED;
+		switch (jedisProperties.getMode()) {
+		case CLUSTER:
+			JedisProperties.Cluster cluster = jedisProperties.getCluster();
+			return new ClusterNodeRouter(hostAndPorts(cluster.getNodes()), config, Protocol.DEFAULT_TIMEOUT,
+					jedisProperties.getPassword(), cluster.getMaxRedirects());
+		case SENTINEL:
+			JedisProperties.Sentinel sentinel = jedisProperties.getSentinel();
+			JedisSentinelPool sentinelPool = new JedisSentinelPool(sentinel.getMaster(), new HashSet<>(sentinel.getNodes()),
+					config, Protocol.DEFAULT_TIMEOUT, jedisProperties.getPassword());
+			if (!readFromReplicas) {
+				return new PooledNodeRouter(sentinelPool);
+			}
+			return new SentinelNodeRouter(sentinelPool, sentinel.getMaster(), hostAndPorts(sentinel.getNodes()),
+					replica -> replicaPool(replica, config), sentinel.getReplicaRefreshInterval());
+		default:
+			return new PooledNodeRouter(jedisPool(config),
+					readFromReplicas ? replicaPools(hostAndPorts(jedisProperties.getReplicas()), config) : Collections.emptyMap());
+		}
+	}
+
 	@Bean
 	public JedisPoolConfig jedisPoolConfig() {
 		JedisPoolConfig config = new JedisPoolConfig();
@@ -45,17 +115,222 @@ public class JedisAutoConfiguration {
 		return config;
 	}
 	
-	@Bean
-	public RedisService redisService() {
+	@Bean(destroyMethod = "destroy")
+	public RedisService redisService(RedisConnectionFactory redisConnectionFactory, RedisValueSerializer redisValueSerializer,
+			RedisKeyNamespace redisKeyNamespace, ObjectProvider<TaskExecutor> taskExecutor, ObjectProvider<RedisMetrics> redisMetrics) {
 		RedisServiceImpl redisService = new RedisServiceImpl();
-		redisService.setJedisPool(jedisPool(jedisPoolConfig()));
+		redisService.setKeyNamespace(redisKeyNamespace);
+		redisService.setRouter(redisNodeRouter());
+		if (jedisProperties.getMode() == JedisProperties.Mode.CLUSTER) {
+			// 跨节点批量操作并行执行各节点的管道,线程用尽时由调用线程执行
+			ThreadPoolTaskExecutor batchExecutor = new ThreadPoolTaskExecutor();
+			batchExecutor.setCorePoolSize(0);
+			batchExecutor.setMaxPoolSize(jedisProperties.getCluster().getBatchThreads());
+			batchExecutor.setQueueCapacity(0);
+			batchExecutor.setThreadNamePrefix("redis-batch-");
+			batchExecutor.setDaemon(true);
+			batchExecutor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+			batchExecutor.initialize();
+			redisService.setBatchExecutor(batchExecutor);
+		}
 		redisService.setRedisTemplate(redisTemplate(redisConnectionFactory, stringRedisSerializer()));
-		return redisService;
+		redisService.setPipelineBatchSize(jedisProperties.getPipelineBatchSize());
+		redisService.setScanCount(jedisProperties.getScanCount());
+		RedisMetrics metrics = redisMetrics.getIfAvailable();
+		redisService.setValueSerializer(metrics == null ? redisValueSerializer : metrics.instrument(redisValueSerializer));
+		redisService.setScriptRegistry(redisScriptRegistry());
+		redisService.setLockNotifier(redisLockNotifier());
+		redisService.setLockChannel(jedisProperties.getLock().getChannel());
+		redisService.setLockWatchdog(new RedisLockWatchdog(redisService, jedisProperties.getLock().getLeaseTime()));
+		redisService.setLoadWaitMillis(jedisProperties.getLoader().getWaitTimeout());
+		redisService.setLoadLockTimeout(jedisProperties.getLoader().getLockTimeout());
+		redisService.setEarlyRefreshBeta(jedisProperties.getLoader().getEarlyRefreshBeta());
+		redisService.setQueueVisibilityTimeoutMillis(TimeUnit.SECONDS.toMillis(jedisProperties.getQueue().getVisibilityTimeout()));
+		redisService.setQueueBlockTimeout(jedisProperties.getQueue().getBlockTimeout());
+		//可靠队列的消费者默认运行在threadpool.enabled=true时配置的TaskExecutor上
+		redisService.setQueueExecutor(taskExecutor.getIfUnique());
+		redisService.setPoolMaxTotal(jedisProperties.getPool().getMaxActive());
+		if (jedisProperties.getNearCache().isEnabled()) {
+			redisService.setNearCache(redisNearCache());
+			redisService.setNearCacheChannel(jedisProperties.getNearCache().getChannel());
+		}
+		if (jedisProperties.getHotKey().isEnabled()) {
+			redisService.setHotKeyDetector(redisHotKeyDetector());
+		}
+		return metrics == null ? redisService : metrics.instrument(redisService);
+	}
+
+	//键名命名空间:统一前缀加应用名及租户名,可自行声明RedisKeyNamespace类型的Bean替换
+	@Bean
+	@ConditionalOnMissingBean(value = RedisKeyNamespace.class)
+	public RedisKeyNamespace redisKeyNamespace() {
+		JedisProperties.Namespace namespace = jedisProperties.getNamespace();
+		return PrefixKeyNamespace.of(namespace.getPrefix(), namespace.getApp(), namespace.getTenant(), namespace.isHashTag());
 	}
 
+	//对象值的序列化方式,可自行声明RedisValueSerializer类型的Bean替换
+	@Bean
+	@ConditionalOnMissingBean(value = RedisValueSerializer.class)
+	public RedisValueSerializer redisValueSerializer() {
+		JedisProperties.Serializer properties = jedisProperties.getSerializer();
+		RedisValueSerializer serializer = properties.getType() == JedisProperties.SerializerType.KRYO
+				? new KryoRedisValueSerializer() : new SmileRedisValueSerializer();
+		// 引入了LZ4时总是按压缩格式读取,关闭压缩后之前压缩写入的数据仍可读取
+		if (properties.getCompressThreshold() > 0 || ClassUtils.isPresent("net.jpountz.lz4.LZ4Factory", getClass().getClassLoader())) {
+			serializer = new Lz4RedisValueSerializer(serializer, properties.getCompressThreshold());
+		}
+		return serializer;
+	}
 
-	@Autowired
-	private RedisConnectionFactory redisConnectionFactory;
+	@Bean
+	@ConditionalOnProperty(prefix = "jedis.near-cache", value = "enabled", havingValue = "true")
+	public RedisNearCache redisNearCache() {
+		JedisProperties.NearCache nearCache = jedisProperties.getNearCache();
+		return new RedisNearCache(nearCache.getKeyPrefixes(), nearCache.getMaximumSize(), nearCache.getTtl(), TimeUnit.SECONDS,
+				nearCache.getMaximumFieldsPerKey());
+	}
+
+	@Bean(destroyMethod = "destroy")
+	@ConditionalOnProperty(prefix = "jedis.hot-key", value = "enabled", havingValue = "true")
+	public RedisHotKeyDetector redisHotKeyDetector() {
+		JedisProperties.HotKey hotKey = jedisProperties.getHotKey();
+		return new RedisHotKeyDetector(hotKey.getWindow(), hotKey.getThreshold(), hotKey.getTopK(),
+				hotKey.getSampleRate(), hotKey.getLocalTtl());
+	}
+
+	//Lua脚本注册表,业务方也可注入后注册自己的脚本
+	@Bean
+	public RedisScriptRegistry redisScriptRegistry() {
+		return new RedisScriptRegistry(redisNodeRouter());
+	}
+
+	@Bean
+	public RedisLockNotifier redisLockNotifier() {
+		return new RedisLockNotifier();
+	}
+
+	//锁释放通知及近端缓存的跨节点淘汰通知,共用一个订阅连接
+	@Bean
+	public RedisMessageListenerContainer jedisMessageListenerContainer(RedisConnectionFactory redisConnectionFactory,
+			ObjectProvider<RedisNearCache> redisNearCache) {
+		RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+		container.setConnectionFactory(redisConnectionFactory);
+		container.addMessageListener(redisLockNotifier(), new ChannelTopic(jedisProperties.getLock().getChannel()));
+		RedisNearCache nearCache = redisNearCache.getIfAvailable();
+		if (nearCache != null) {
+			container.addMessageListener(nearCache, new ChannelTopic(jedisProperties.getNearCache().getChannel()));
+		}
+		return container;
+	}
+
+	//非阻塞客户端:单个多路复用的Lettuce连接,部署模式及读取策略与Jedis一致
+	@Bean(destroyMethod = "destroy")
+	@ConditionalOnProperty(prefix = "jedis.async", value = "enabled", havingValue = "true")
+	public AsyncRedisService asyncRedisService(ObjectProvider<RedisNearCache> redisNearCache, RedisKeyNamespace redisKeyNamespace) {
+		ReadFrom readFrom = jedisProperties.getReadFrom() == JedisProperties.ReadFrom.REPLICA_PREFERRED
+				? ReadFrom.SLAVE_PREFERRED : ReadFrom.MASTER;
+		LettuceAsyncRedisService asyncRedisService;
+		switch (jedisProperties.getMode()) {
+		case CLUSTER:
+			RedisClusterClient clusterClient = RedisClusterClient.create(clusterSeeds());
+			StatefulRedisClusterConnection<String, String> clusterConnection = clusterClient.connect();
+			clusterConnection.setReadFrom(readFrom);
+			asyncRedisService = new LettuceAsyncRedisService(clusterClient, clusterConnection, clusterConnection.async());
+			break;
+		case SENTINEL:
+			RedisClient sentinelClient = RedisClient.create();
+			StatefulRedisMasterSlaveConnection<String, String> sentinelConnection =
+					MasterSlave.connect(sentinelClient, StringCodec.UTF8, sentinelURI());
+			sentinelConnection.setReadFrom(readFrom);
+			asyncRedisService = new LettuceAsyncRedisService(sentinelClient, sentinelConnection, sentinelConnection.async());
+			break;
+		default:
+			RedisURI master = redisURI(RedisURI.Builder.redis(jedisProperties.getHost(), jedisProperties.getPort()));
+			RedisClient client = RedisClient.create();
+			if (readFrom == ReadFrom.MASTER || jedisProperties.getReplicas().isEmpty()) {
+				StatefulRedisConnection<String, String> connection = client.connect(StringCodec.UTF8, master);
+				asyncRedisService = new LettuceAsyncRedisService(client, connection, connection.async());
+				break;
+			}
+			List<RedisURI> nodes = new ArrayList<>();
+			nodes.add(master);
+			for (HostAndPort replica : hostAndPorts(jedisProperties.getReplicas())) {
+				nodes.add(redisURI(RedisURI.Builder.redis(replica.getHost(), replica.getPort())));
+			}
+			StatefulRedisMasterSlaveConnection<String, String> connection = MasterSlave.connect(client, StringCodec.UTF8, nodes);
+			connection.setReadFrom(readFrom);
+			asyncRedisService = new LettuceAsyncRedisService(client, connection, connection.async());
+		}
+		RedisNearCache nearCache = redisNearCache.getIfAvailable();
+		asyncRedisService.setKeyNamespace(redisKeyNamespace);
+		if (nearCache != null) {
+			asyncRedisService.setNearCache(nearCache);
+			asyncRedisService.setNearCacheChannel(jedisProperties.getNearCache().getChannel());
+		}
+		return asyncRedisService;
+	}
+
+	//Streams消息:发布及确认共用一个Lettuce连接,每个订阅另建连接用于阻塞读取.流命令均在主节点执行
+	@Bean(destroyMethod = "destroy")
+	@ConditionalOnProperty(prefix = "jedis.stream", value = "enabled", havingValue = "true")
+	public RedisStreams redisStreams(RedisKeyNamespace redisKeyNamespace) {
+		RedisStreams redisStreams;
+		if (jedisProperties.getMode() == JedisProperties.Mode.CLUSTER) {
+			RedisClusterClient clusterClient = RedisClusterClient.create(clusterSeeds());
+			redisStreams = new RedisStreams(clusterClient, redisKeyNamespace, clusterClient::connect);
+		} else {
+			RedisURI uri = jedisProperties.getMode() == JedisProperties.Mode.SENTINEL ? sentinelURI()
+					: redisURI(RedisURI.Builder.redis(jedisProperties.getHost(), jedisProperties.getPort()));
+			RedisClient client = RedisClient.create();
+			redisStreams = new RedisStreams(client, redisKeyNamespace, () -> client.connect(StringCodec.UTF8, uri));
+		}
+		JedisProperties.Stream stream = jedisProperties.getStream();
+		redisStreams.setMaxLen(stream.getMaxLen());
+		redisStreams.setBatchSize(stream.getBatchSize());
+		redisStreams.setBlockTimeout(stream.getBlockTimeout());
+		redisStreams.setConcurrency(stream.getConcurrency());
+		redisStreams.setMaxInFlight(stream.getMaxInFlight());
+		redisStreams.setClaimMinIdle(stream.getClaimMinIdle());
+		redisStreams.setAckBatchSize(stream.getAckBatchSize());
+		return redisStreams;
+	}
+
+	//单连接栈模式:RedisTemplate与直接使用Jedis的操作共用jedisPool,取代spring.redis.*配置的连接工厂.
+	//集群模式下RedisTemplate需要按槽路由的连接,无法共用各节点的连接池,启动时拒绝该组合
+	@Bean
+	@ConditionalOnProperty(prefix = "jedis", value = "single-stack", havingValue = "true")
+	public RedisConnectionFactory jedisPoolConnectionFactory() {
+		RedisNodeRouter router = redisNodeRouter();
+		if (!(router instanceof PooledNodeRouter)) {
+			throw new IllegalStateException("jedis.single-stack=true is not supported with jedis.mode=" + jedisProperties.getMode()
+					+ ", RedisTemplate would open a second pool on every node; disable single-stack and configure spring.redis.cluster.* for RedisTemplate");
+		}
+		return new JedisPoolConnectionFactory(((PooledNodeRouter) router).getMaster());
+	}
+
+	@Bean(destroyMethod = "destroy")
+	public RedisPoolMonitor redisPoolMonitor(RedisConnectionFactory redisConnectionFactory, ObjectProvider<RedisMetrics> redisMetrics) {
+		RedisPoolMonitor monitor = new RedisPoolMonitor(redisNodeRouter(),
+				jedisProperties.getPool().getMaxActive(), redisConnectionFactory);
+		monitor.start(jedisProperties.getPool().getReportInterval());
+		redisMetrics.ifAvailable(metrics -> metrics.bindPools(monitor));
+		return monitor;
+	}
+
+	//Micrometer指标:jedis.metrics.enabled=true且类路径上有micrometer-core时记录RedisService各命令耗时、错误数、数据大小及连接池状态.
+	//未声明MeterRegistry时使用全局注册表
+	@Configuration
+	@ConditionalOnClass(name = "io.micrometer.core.instrument.MeterRegistry")
+	@ConditionalOnProperty(prefix = "jedis.metrics", value = "enabled", havingValue = "true")
+	static class RedisMetricsConfiguration {
+
+		@Bean
+		@ConditionalOnMissingBean(value = RedisMetrics.class)
+		public RedisMetrics redisMetrics(ObjectProvider<MeterRegistry> meterRegistry, JedisProperties jedisProperties) {
+			return new MicrometerRedisMetrics(meterRegistry.getIfAvailable(() -> Metrics.globalRegistry),
+					jedisProperties.getMetrics().isPercentileHistogram());
+		}
+	}
 
 	@Bean
 	@ConditionalOnMissingBean(value = StringRedisSerializer.class)
@@ -78,4 +353,53 @@ public class JedisAutoConfiguration {
 		return template;
 	}
 
+	private RedisURI redisURI(RedisURI.Builder builder) {
+		if (jedisProperties.getPassword() != null) {
+			builder.withPassword(jedisProperties.getPassword());
+		}
+		return builder.withTimeout(Duration.ofMillis(jedisProperties.getAsync().getTimeout())).build();
+	}
+
+	private List<RedisURI> clusterSeeds() {
+		List<RedisURI> seeds = new ArrayList<>();
+		for (HostAndPort node : hostAndPorts(jedisProperties.getCluster().getNodes())) {
+			seeds.add(redisURI(RedisURI.Builder.redis(node.getHost(), node.getPort())));
+		}
+		return seeds;
+	}
+
+	//经由哨兵查找主节点的地址
+	private RedisURI sentinelURI() {
+		JedisProperties.Sentinel sentinel = jedisProperties.getSentinel();
+		RedisURI.Builder builder = null;
+		for (HostAndPort node : hostAndPorts(sentinel.getNodes())) {
+			if (builder == null) {
+				builder = RedisURI.Builder.sentinel(node.getHost(), node.getPort(), sentinel.getMaster());
+			} else {
+				builder.withSentinel(node.getHost(), node.getPort());
+			}
+		}
+		return redisURI(builder);
+	}
+
+	private static Set<HostAndPort> hostAndPorts(List<String> nodes) {
+		Set<HostAndPort> hostAndPorts = new LinkedHashSet<>();
+		for (String node : nodes) {
+			hostAndPorts.add(HostAndPort.parseString(node.trim()));
+		}
+		return hostAndPorts;
+	}
+
+	private Map<String, Pool<Jedis>> replicaPools(Set<HostAndPort> replicas, JedisPoolConfig config) {
+		Map<String, Pool<Jedis>> pools = new LinkedHashMap<>();
+		for (HostAndPort replica : replicas) {
+			pools.put(replica.toString(), replicaPool(replica, config));
+		}
+		return pools;
+	}
+
+	private Pool<Jedis> replicaPool(HostAndPort replica, JedisPoolConfig config) {
+		return new JedisPool(config, replica.getHost(), replica.getPort(), Protocol.DEFAULT_TIMEOUT, jedisProperties.getPassword());
+	}
+
 }
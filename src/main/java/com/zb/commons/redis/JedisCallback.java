@@ -0,0 +1,19 @@
+package com.zb.commons.redis;
+
+import redis.clients.jedis.Jedis;
+
+/**
+ * 基于连接池中单个Jedis连接执行的回调
+ *
+ * @author zhangbo
+ */
+@FunctionalInterface
+public interface JedisCallback<T> {
+
+    /**
+     * 使用借出的连接执行命令,连接的归还由调用方负责
+     * @param jedis
+     * @return
+     */
+    T doInJedis(Jedis jedis);
+}
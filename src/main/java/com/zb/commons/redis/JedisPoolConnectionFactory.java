@@ -0,0 +1,58 @@
+package com.zb.commons.redis;
+
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
+import org.springframework.data.redis.connection.RedisClusterConnection;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.RedisSentinelConnection;
+import org.springframework.data.redis.connection.jedis.JedisConnection;
+import org.springframework.data.redis.connection.jedis.JedisConverters;
+import redis.clients.jedis.Jedis;
+import redis.clients.util.Pool;
+
+/**
+ * 基于已有Jedis连接池的RedisConnectionFactory
+ * <p>
+ * 单连接栈模式下RedisTemplate与RedisServiceImpl中直接使用Jedis的操作共用同一个连接池,
+ * 连接在RedisConnection关闭时归还到该连接池
+ *
+ * @author zhangbo
+ */
+public class JedisPoolConnectionFactory implements RedisConnectionFactory {
+
+    private final Pool<Jedis> pool;
+
+    public JedisPoolConnectionFactory(Pool<Jedis> pool) {
+        this.pool = pool;
+    }
+
+    public Pool<Jedis> getPool() {
+        return pool;
+    }
+
+    @Override
+    public RedisConnection getConnection() {
+        return new JedisConnection(pool.getResource(), pool, 0);
+    }
+
+    @Override
+    public RedisClusterConnection getClusterConnection() {
+        throw new InvalidDataAccessApiUsageException("cluster is not supported by JedisPoolConnectionFactory");
+    }
+
+    @Override
+    public boolean getConvertPipelineAndTxResults() {
+        return true;
+    }
+
+    @Override
+    public RedisSentinelConnection getSentinelConnection() {
+        throw new InvalidDataAccessApiUsageException("sentinel connection is not supported by JedisPoolConnectionFactory");
+    }
+
+    @Override
+    public DataAccessException translateExceptionIfPossible(RuntimeException ex) {
+        return JedisConverters.toDataAccessException(ex);
+    }
+}
@@ -4,6 +4,9 @@ import lombok.Getter;
 import lombok.Setter;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * @author zhangbo
  */
@@ -24,10 +27,82 @@ public class JedisProperties {
      * 密码
      */
     private String password;
+    /**
+     * 键名命名空间属性
+     */
+    private Namespace namespace = new Namespace();
+    /**
+     * 部署模式,哨兵及集群模式下忽略host及port
+     */
+    private Mode mode = Mode.STANDALONE;
+    /**
+     * 哨兵模式属性
+     */
+    private Sentinel sentinel = new Sentinel();
+    /**
+     * 集群模式属性
+     */
+    private Cluster cluster = new Cluster();
+    /**
+     * 单机模式下的副本地址(host:port),用于只读命令.哨兵模式下副本由哨兵发现
+     */
+    private List<String> replicas = new ArrayList<>();
+    /**
+     * 只读命令(get、hashGet、hashGetAll、getList等)的读取策略
+     */
+    private ReadFrom readFrom = ReadFrom.MASTER;
     /**
      * 连接池属性
      */
     private Pool pool;
+    /**
+     * 单连接栈模式.为true时RedisTemplate也使用本连接池,不再单独创建spring.redis.*的连接.集群模式不支持,启动时报错
+     */
+    private boolean singleStack = false;
+    /**
+     * 批量操作时单个管道(pipeline)最多包含的命令数,超出部分拆分为多个管道依次执行
+     */
+    private int pipelineBatchSize = 500;
+    /**
+     * SCAN命令的COUNT提示,每次迭代期望遍历的键数量
+     */
+    private int scanCount = 1000;
+    /**
+     * 本地近端缓存属性
+     */
+    private NearCache nearCache = new NearCache();
+    /**
+     * 热点键探测属性
+     */
+    private HotKey hotKey = new HotKey();
+    /**
+     * getOrLoad加载属性
+     */
+    private Loader loader = new Loader();
+    /**
+     * 可靠队列属性
+     */
+    private Queue queue = new Queue();
+    /**
+     * Streams消息属性
+     */
+    private Stream stream = new Stream();
+    /**
+     * 对象值序列化属性
+     */
+    private Serializer serializer = new Serializer();
+    /**
+     * 分布式锁属性
+     */
+    private Lock lock = new Lock();
+    /**
+     * 非阻塞客户端属性
+     */
+    private Async async = new Async();
+    /**
+     * Micrometer指标属性
+     */
+    private Metrics metrics = new Metrics();
     
     
     @Getter
@@ -58,5 +133,323 @@ public class JedisProperties {
          * to block indefinitely.
          */
         private int maxWait = -1;
+
+        /**
+         * 连接池使用情况输出到日志的间隔,单位为秒.小于等于0时不输出
+         */
+        private int reportInterval = 0;
+    }
+
+    @Getter
+    @Setter
+    public static class Sentinel {
+
+        /**
+         * 主节点名称
+         */
+        private String master;
+
+        /**
+         * 哨兵地址列表(host:port)
+         */
+        private List<String> nodes = new ArrayList<>();
+
+        /**
+         * 只读命令使用副本时,向哨兵查询副本列表的间隔,单位为秒.小于等于0时只在启动及副本连接失败时查询
+         */
+        private int replicaRefreshInterval = 10;
+    }
+
+    @Getter
+    @Setter
+    public static class Cluster {
+
+        /**
+         * 初始节点地址列表(host:port),任一可用即可获取完整的槽分布
+         */
+        private List<String> nodes = new ArrayList<>();
+
+        /**
+         * 单条命令最多跟随的重定向(MOVED/ASK)次数
+         */
+        private int maxRedirects = 5;
+
+        /**
+         * 跨节点批量操作并行执行的最大线程数,线程用尽时由调用线程执行
+         */
+        private int batchThreads = 16;
+    }
+
+    @Getter
+    @Setter
+    public static class NearCache {
+
+        /**
+         * 是否启用本地近端缓存
+         */
+        private boolean enabled = false;
+
+        /**
+         * 启用本地缓存的键名前缀(不含统一前缀),只有匹配的键才会缓存在本地
+         */
+        private List<String> keyPrefixes = new ArrayList<>();
+
+        /**
+         * 本地缓存的最大条目数
+         */
+        private long maximumSize = 10000;
+
+        /**
+         * 本地缓存的最长存活时间,单位为秒.实际存活时间不超过键在Redis中的剩余TTL
+         */
+        private int ttl = 60;
+
+        /**
+         * 每个散列最多缓存在本地的字段数,超出后新字段直接读取Redis
+         */
+        private int maximumFieldsPerKey = 1000;
+
+        /**
+         * 跨节点淘汰通知使用的发布订阅频道
+         */
+        private String channel = "jhj_near_cache_invalidation";
+    }
+
+    @Getter
+    @Setter
+    public static class HotKey {
+
+        /**
+         * 是否启用热点键探测,热点键的get及hashGet由本地副本提供
+         */
+        private boolean enabled = false;
+
+        /**
+         * 统计窗口,单位为秒
+         */
+        private int window = 10;
+
+        /**
+         * 窗口内估计访问次数达到该值即视为热点
+         */
+        private long threshold = 1000;
+
+        /**
+         * 最多同时保留的热点键个数
+         */
+        private int topK = 32;
+
+        /**
+         * 采样比例,每N次读取记录1次.已是热点的键另按固定比例稀疏采样
+         */
+        private int sampleRate = 8;
+
+        /**
+         * 热点键本地副本的存活时间,单位为毫秒.其他节点写入后,本地副本最多在该时间内读到旧值
+         */
+        private long localTtl = 1000;
+    }
+
+    @Getter
+    @Setter
+    public static class Loader {
+
+        /**
+         * 等待其他节点完成加载的最长时间,单位为毫秒.超时后自行加载
+         */
+        private long waitTimeout = 3000;
+
+        /**
+         * 加载锁的过期时间,单位为秒.应大于加载耗时
+         */
+        private int lockTimeout = 10;
+
+        /**
+         * 提前刷新系数(XFetch中的beta),1为推荐值,越大越早刷新.小于等于0时不提前刷新
+         */
+        private double earlyRefreshBeta = 0;
+    }
+
+    @Getter
+    @Setter
+    public static class Queue {
+
+        /**
+         * 可见性超时时间,单位为秒.取出后超过该时间未确认的元素重新投递
+         */
+        private int visibilityTimeout = 30;
+
+        /**
+         * 队列为空时单次阻塞等待的时间,单位为秒.消费者停止时最多等待该时间后退出
+         */
+        private int blockTimeout = 5;
+    }
+
+    @Getter
+    @Setter
+    public static class Namespace {
+
+        /**
+         * 统一前缀
+         */
+        private String prefix = "jhj_";
+
+        /**
+         * 应用名,非空时追加在前缀后,如jhj_order_
+         */
+        private String app;
+
+        /**
+         * 租户名,非空时追加在应用名后,如jhj_order_t1_
+         */
+        private String tenant;
+
+        /**
+         * 是否把整个前缀包在hash tag中.集群模式下命名空间内的全部键位于同一个槽,
+         * 可执行跨键命令及脚本,但该槽所在节点承担全部负载,仅适用于数据量较小的命名空间
+         */
+        private boolean hashTag = false;
+    }
+
+    @Getter
+    @Setter
+    public static class Stream {
+
+        /**
+         * 是否启用Streams消息,需要Redis 5.0及以上
+         */
+        private boolean enabled = false;
+
+        /**
+         * 发布时按近似长度裁剪,小于等于0时不裁剪
+         */
+        private long maxLen = 100000;
+
+        /**
+         * 每次读取的最大消息数
+         */
+        private int batchSize = 100;
+
+        /**
+         * 无消息时单次阻塞读取的时间,单位为毫秒
+         */
+        private long blockTimeout = 1000;
+
+        /**
+         * 每个消费者默认的处理线程数
+         */
+        private int concurrency = 8;
+
+        /**
+         * 每个消费者已读取未处理完的最大消息数
+         */
+        private int maxInFlight = 1000;
+
+        /**
+         * 未确认消息被重新认领的空闲时间,单位为毫秒
+         */
+        private long claimMinIdle = 60000;
+
+        /**
+         * 合并确认的消息数
+         */
+        private int ackBatchSize = 100;
+    }
+
+    @Getter
+    @Setter
+    public static class Async {
+
+        /**
+         * 是否启用基于Lettuce的AsyncRedisService
+         */
+        private boolean enabled = false;
+
+        /**
+         * 命令超时时间,单位为毫秒
+         */
+        private int timeout = 2000;
+    }
+
+    @Getter
+    @Setter
+    public static class Lock {
+
+        /**
+         * 锁释放通知使用的发布订阅频道
+         */
+        private String channel = "jhj_distributed_lock_release";
+
+        /**
+         * 可重入锁的租约时间,单位为秒.持有期间每隔1/3租约时间自动续期
+         */
+        private int leaseTime = 30;
+    }
+
+    @Getter
+    @Setter
+    public static class Metrics {
+
+        /**
+         * 是否记录RedisService各命令的耗时、错误数、数据大小及连接池状态,需要micrometer-core
+         */
+        private boolean enabled = false;
+
+        /**
+         * 是否发布耗时及数据大小的直方图桶,用于在监控系统中聚合计算百分位
+         */
+        private boolean percentileHistogram = true;
+    }
+
+    @Getter
+    @Setter
+    public static class Serializer {
+
+        /**
+         * 序列化方式
+         */
+        private SerializerType type = SerializerType.SMILE;
+
+        /**
+         * 序列化结果达到该字节数时使用LZ4压缩,小于等于0表示不压缩;引入了LZ4时无论是否压缩都能读取压缩过的数据
+         */
+        private int compressThreshold = 0;
+    }
+
+    public enum Mode {
+        /**
+         * 单机,可配置副本用于只读命令
+         */
+        STANDALONE,
+        /**
+         * 哨兵,主节点故障转移后自动切换
+         */
+        SENTINEL,
+        /**
+         * 集群,按槽路由
+         */
+        CLUSTER
+    }
+
+    public enum ReadFrom {
+        /**
+         * 只从主节点读取
+         */
+        MASTER,
+        /**
+         * 优先从副本读取,副本不可用时从主节点读取.副本数据可能略有延迟;近端缓存的键未命中时仍从主节点读取
+         */
+        REPLICA_PREFERRED
+    }
+
+    public enum SerializerType {
+        /**
+         * Jackson Smile
+         */
+        SMILE,
+        /**
+         * Kryo,需要自行引入kryo依赖
+         */
+        KRYO
     }
 }
@@ -0,0 +1,43 @@
+package com.zb.commons.redis;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import org.objenesis.strategy.StdInstantiatorStrategy;
+
+/**
+ * 基于Kryo的紧凑二进制序列化实现
+ * <p>
+ * 不写入字段名,体积最小,但要求读写两端的类结构一致.
+ * Kryo实例非线程安全,每个线程持有一份实例及输出缓冲区
+ * <p>
+ * 需要自行引入com.esotericsoftware:kryo依赖
+ *
+ * @author zhangbo
+ */
+public class KryoRedisValueSerializer implements RedisValueSerializer {
+
+    private static final int BUFFER_SIZE = 4096;
+
+    private final ThreadLocal<Kryo> kryos = ThreadLocal.withInitial(() -> {
+        Kryo kryo = new Kryo();
+        kryo.setRegistrationRequired(false);
+        kryo.setInstantiatorStrategy(new Kryo.DefaultInstantiatorStrategy(new StdInstantiatorStrategy()));
+        return kryo;
+    });
+
+    private final ThreadLocal<Output> outputs = ThreadLocal.withInitial(() -> new Output(BUFFER_SIZE, -1));
+
+    @Override
+    public byte[] serialize(Object value) {
+        Output output = outputs.get();
+        output.clear();
+        kryos.get().writeObject(output, value);
+        return output.toBytes();
+    }
+
+    @Override
+    public <T> T deserialize(byte[] bytes, Class<T> type) {
+        return kryos.get().readObject(new Input(bytes), type);
+    }
+}
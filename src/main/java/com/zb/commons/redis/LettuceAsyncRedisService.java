@@ -0,0 +1,186 @@
+package com.zb.commons.redis;
+
+import io.lettuce.core.AbstractRedisClient;
+import io.lettuce.core.KeyValue;
+import io.lettuce.core.RedisNoScriptException;
+import io.lettuce.core.ScriptOutputType;
+import io.lettuce.core.api.StatefulConnection;
+import io.lettuce.core.cluster.api.async.RedisClusterAsyncCommands;
+import lombok.Setter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * 基于Lettuce的非阻塞实现
+ * <p>
+ * 全部命令经由同一个多路复用连接发送,并发的命令在连接上自动流水线化
+ *
+ * @author zhangbo
+ */
+@Setter
+public class LettuceAsyncRedisService implements AsyncRedisService {
+
+    private final AbstractRedisClient client;
+
+    private final StatefulConnection<String, String> connection;
+
+    private final RedisClusterAsyncCommands<String, String> commands;
+
+    /**
+     * 键名命名空间
+     */
+    private RedisKeyNamespace keyNamespace = PrefixKeyNamespace.DEFAULT;
+
+    /**
+     * 本地近端缓存,写入后淘汰,为null时不启用
+     */
+    private RedisNearCache nearCache;
+
+    /**
+     * 近端缓存跨节点淘汰通知频道
+     */
+    private String nearCacheChannel;
+
+    public LettuceAsyncRedisService(AbstractRedisClient client, StatefulConnection<String, String> connection,
+                                    RedisClusterAsyncCommands<String, String> commands) {
+        this.client = client;
+        this.connection = connection;
+        this.commands = commands;
+    }
+
+    @Override
+    public CompletableFuture<Void> put(String key, String value, int expire) {
+        String redisKey = keyNamespace.key(key);
+        CompletableFuture<String> result = expire > 0
+                ? commands.setex(redisKey, expire, value).toCompletableFuture()
+                : commands.set(redisKey, value).toCompletableFuture();
+        return result.thenRun(() -> evictNearCache(key));
+    }
+
+    @Override
+    public CompletableFuture<String> get(String key) {
+        return commands.get(keyNamespace.key(key)).toCompletableFuture();
+    }
+
+    @Override
+    public CompletableFuture<List<String>> multiGet(List<String> keys) {
+        if (keys.isEmpty()) {
+            // Lettuce不接受空的MGET,与同步实现一致返回空结果
+            return CompletableFuture.completedFuture(Collections.emptyList());
+        }
+        String[] redisKeys = new String[keys.size()];
+        for (int i = 0; i < redisKeys.length; i++) {
+            redisKeys[i] = keyNamespace.key(keys.get(i));
+        }
+        return commands.mget(redisKeys).toCompletableFuture().thenApply(keyValues -> {
+            List<String> values = new ArrayList<>(keyValues.size());
+            for (KeyValue<String, String> keyValue : keyValues) {
+                values.add(keyValue.getValueOrElse(null));
+            }
+            return values;
+        });
+    }
+
+    @Override
+    public CompletableFuture<Void> delete(String key) {
+        return commands.del(keyNamespace.key(key)).toCompletableFuture().thenRun(() -> evictNearCache(key));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> keyExists(String key) {
+        return commands.exists(keyNamespace.key(key)).toCompletableFuture().thenApply(count -> count != null && count > 0);
+    }
+
+    @Override
+    public CompletableFuture<Long> stringIncr(String key, long incrNum) {
+        return commands.incrby(keyNamespace.key(key), incrNum).toCompletableFuture().whenComplete((value, e) -> evictNearCache(key));
+    }
+
+    @Override
+    public CompletableFuture<Void> hashPut(String key, String field, String value, int expire) {
+        return this.<Long>evalsha(RedisServiceImpl.HASH_PUT_SCRIPT, ScriptOutputType.INTEGER,
+                new String[]{keyNamespace.key(key)}, field, value, String.valueOf(expire))
+                .thenRun(() -> evictNearCache(key));
+    }
+
+    @Override
+    public CompletableFuture<String> hashGet(String key, String field) {
+        return commands.hget(keyNamespace.key(key), field).toCompletableFuture();
+    }
+
+    @Override
+    public CompletableFuture<Map<String, String>> hashGetAll(String key) {
+        return commands.hgetall(keyNamespace.key(key)).toCompletableFuture();
+    }
+
+    @Override
+    public CompletableFuture<Void> hashPutAll(String key, Map<String, String> values) {
+        return commands.hmset(keyNamespace.key(key), values).toCompletableFuture().thenRun(() -> evictNearCache(key));
+    }
+
+    @Override
+    public CompletableFuture<Long> createOrUpdateListByLeftPush(String key, String value, int expire) {
+        return evalsha(RedisServiceImpl.LEFT_PUSH_SCRIPT, ScriptOutputType.INTEGER,
+                new String[]{keyNamespace.key(key)}, value, String.valueOf(expire));
+    }
+
+    @Override
+    public CompletableFuture<List<String>> getList(String key, long startIndex, long endIndex) {
+        return commands.lrange(keyNamespace.key(key), startIndex, endIndex).toCompletableFuture();
+    }
+
+    @Override
+    public CompletableFuture<Long> getListLength(String key) {
+        return commands.llen(keyNamespace.key(key)).toCompletableFuture();
+    }
+
+    @Override
+    public CompletableFuture<Boolean> setTTL(String key, int expire) {
+        return commands.expire(keyNamespace.key(key), expire).toCompletableFuture();
+    }
+
+    @Override
+    public CompletableFuture<Long> getTTL(String key) {
+        return commands.ttl(keyNamespace.key(key)).toCompletableFuture();
+    }
+
+    /**
+     * 关闭连接及客户端
+     */
+    public void destroy() {
+        connection.close();
+        client.shutdown();
+    }
+
+    /**
+     * 按SHA1执行脚本,服务端缺少脚本时改用EVAL(同时完成加载)
+     */
+    private <T> CompletableFuture<T> evalsha(RedisLuaScript script, ScriptOutputType type, String[] keys, String... args) {
+        return commands.<T>evalsha(script.getSha1(), type, keys, args).toCompletableFuture()
+                .handle((value, e) -> {
+                    if (e == null) {
+                        return CompletableFuture.completedFuture(value);
+                    }
+                    Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                    if (cause instanceof RedisNoScriptException) {
+                        return commands.<T>eval(script.getScript(), type, keys, args).toCompletableFuture();
+                    }
+                    CompletableFuture<T> failed = new CompletableFuture<>();
+                    failed.completeExceptionally(cause);
+                    return failed;
+                })
+                .thenCompose(future -> future);
+    }
+
+    private void evictNearCache(String key) {
+        if (nearCache != null && nearCache.isCacheable(key)) {
+            nearCache.evict(key);
+            commands.publish(nearCacheChannel, key);
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.zb.commons.redis;
+
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Exception;
+import net.jpountz.lz4.LZ4Factory;
+import net.jpountz.lz4.LZ4SafeDecompressor;
+
+/**
+ * 对序列化结果进行LZ4压缩的装饰实现
+ * <p>
+ * 序列化结果不小于阈值且压缩后更小时才压缩,压缩结果以4字节魔数开头,其后4字节为原始长度;
+ * 未压缩的结果与实际序列化实现的输出完全相同.读取时没有魔数、原始长度越界或解压失败的数据交给实际实现处理,
+ * 因此开启或关闭压缩前后写入的数据均可读取
+ * <p>
+ * 需要自行引入org.lz4:lz4-java依赖
+ *
+ * @author zhangbo
+ */
+public class Lz4RedisValueSerializer implements RedisValueSerializer {
+
+    /**
+     * 0xFF在Smile中是内容结束标记,不会出现在开头
+     */
+    private static final byte[] MAGIC = {(byte) 0xFF, 'L', 'Z', '4'};
+
+    private static final int HEADER_LENGTH = MAGIC.length + 4;
+
+    /**
+     * Redis字符串值的上限
+     */
+    private static final int MAX_LENGTH = 512 * 1024 * 1024;
+
+    /**
+     * LZ4的最大压缩比约为255,超出说明不是压缩数据
+     */
+    private static final int MAX_RATIO = 255;
+
+    private final RedisValueSerializer delegate;
+
+    private final int threshold;
+
+    private final LZ4Compressor compressor;
+
+    private final LZ4SafeDecompressor decompressor;
+
+    /**
+     * @param delegate  实际的序列化实现
+     * @param threshold 压缩阈值,单位为字节,小于等于0时只解压已压缩的数据而不再压缩
+     */
+    public Lz4RedisValueSerializer(RedisValueSerializer delegate, int threshold) {
+        this.delegate = delegate;
+        this.threshold = threshold;
+        LZ4Factory factory = LZ4Factory.fastestInstance();
+        this.compressor = factory.fastCompressor();
+        this.decompressor = factory.safeDecompressor();
+    }
+
+    @Override
+    public byte[] serialize(Object value) {
+        byte[] raw = delegate.serialize(value);
+        if (threshold <= 0 || raw.length < threshold) {
+            return raw;
+        }
+        byte[] bytes = new byte[HEADER_LENGTH + compressor.maxCompressedLength(raw.length)];
+        System.arraycopy(MAGIC, 0, bytes, 0, MAGIC.length);
+        writeInt(bytes, MAGIC.length, raw.length);
+        int compressedLength = compressor.compress(raw, 0, raw.length, bytes, HEADER_LENGTH);
+        if (HEADER_LENGTH + compressedLength >= raw.length) {
+            return raw;
+        }
+        byte[] result = new byte[HEADER_LENGTH + compressedLength];
+        System.arraycopy(bytes, 0, result, 0, result.length);
+        return result;
+    }
+
+    @Override
+    public <T> T deserialize(byte[] bytes, Class<T> type) {
+        byte[] raw = decompress(bytes);
+        return delegate.deserialize(raw != null ? raw : bytes, type);
+    }
+
+    /**
+     * @return 不是压缩数据时返回null
+     */
+    private byte[] decompress(byte[] bytes) {
+        if (bytes.length <= HEADER_LENGTH) {
+            return null;
+        }
+        for (int i = 0; i < MAGIC.length; i++) {
+            if (bytes[i] != MAGIC[i]) {
+                return null;
+            }
+        }
+        int length = readInt(bytes, MAGIC.length);
+        int compressedLength = bytes.length - HEADER_LENGTH;
+        if (length <= compressedLength || length > MAX_LENGTH || length > (long) compressedLength * MAX_RATIO) {
+            return null;
+        }
+        byte[] raw = new byte[length];
+        try {
+            if (decompressor.decompress(bytes, HEADER_LENGTH, compressedLength, raw, 0, length) != length) {
+                return null;
+            }
+        } catch (LZ4Exception e) {
+            return null;
+        }
+        return raw;
+    }
+
+    private static void writeInt(byte[] bytes, int offset, int value) {
+        bytes[offset] = (byte) (value >>> 24);
+        bytes[offset + 1] = (byte) (value >>> 16);
+        bytes[offset + 2] = (byte) (value >>> 8);
+        bytes[offset + 3] = (byte) value;
+    }
+
+    private static int readInt(byte[] bytes, int offset) {
+        return ((bytes[offset] & 0xFF) << 24) | ((bytes[offset + 1] & 0xFF) << 16)
+                | ((bytes[offset + 2] & 0xFF) << 8) | (bytes[offset + 3] & 0xFF);
+    }
+}
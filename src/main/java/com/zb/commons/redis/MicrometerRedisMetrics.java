@@ -0,0 +1,275 @@
+package com.zb.commons.redis;
+
+import com.google.common.base.Utf8;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.DisposableBean;
+import redis.clients.jedis.Jedis;
+import redis.clients.util.Pool;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 基于Micrometer的Redis指标
+ * <p>
+ * <ul>
+ * <li>redis.command:各方法的耗时,按command及outcome(success/error)区分</li>
+ * <li>redis.command.errors:各方法的错误数,按command及exception区分</li>
+ * <li>redis.payload.size:字符串参数及返回值的UTF-8字节数,按command及direction(request/response)区分;
+ * 对象值记录序列化后的字节数,command为serialize/deserialize</li>
+ * <li>redis.pool.active/idle/waiters/max及redis.pool.borrow.wait.mean/max:各Jedis连接池的状态,按pool区分</li>
+ * </ul>
+ * 每个方法的计时器在包装时创建,调用时只有一次哈希查找.
+ * 需要自行引入io.micrometer:micrometer-core依赖
+ *
+ * @author zhangbo
+ */
+public class MicrometerRedisMetrics implements RedisMetrics {
+
+    private final MeterRegistry registry;
+
+    private final boolean percentileHistogram;
+
+    /**
+     * @param registry
+     * @param percentileHistogram 是否发布直方图桶
+     */
+    public MicrometerRedisMetrics(MeterRegistry registry, boolean percentileHistogram) {
+        this.registry = registry;
+        this.percentileHistogram = percentileHistogram;
+    }
+
+    @Override
+    public RedisService instrument(RedisService redisService) {
+        Map<Method, CommandMeters> commands = new HashMap<>();
+        for (Method method : RedisService.class.getMethods()) {
+            commands.put(method, new CommandMeters(method));
+        }
+        // 实现DisposableBean,使包装后的Bean仍可按destroy方法销毁
+        return (RedisService) Proxy.newProxyInstance(RedisService.class.getClassLoader(),
+                new Class<?>[]{RedisService.class, DisposableBean.class}, new InstrumentedInvocationHandler(redisService, commands));
+    }
+
+    @Override
+    public RedisValueSerializer instrument(RedisValueSerializer serializer) {
+        DistributionSummary serialized = payloadSize("serialize", "request");
+        DistributionSummary deserialized = payloadSize("deserialize", "response");
+        return new RedisValueSerializer() {
+            @Override
+            public byte[] serialize(Object value) {
+                byte[] bytes = serializer.serialize(value);
+                serialized.record(bytes.length);
+                return bytes;
+            }
+
+            @Override
+            public <T> T deserialize(byte[] bytes, Class<T> type) {
+                deserialized.record(bytes.length);
+                return serializer.deserialize(bytes, type);
+            }
+        };
+    }
+
+    @Override
+    public void bindPools(RedisPoolMonitor poolMonitor) {
+        for (Map.Entry<String, Pool<Jedis>> entry : poolMonitor.jedisPools().entrySet()) {
+            String name = entry.getKey();
+            Pool<Jedis> pool = entry.getValue();
+            Gauge.builder("redis.pool.active", pool, Pool::getNumActive).tag("pool", name)
+                    .description("borrowed connections").register(registry);
+            Gauge.builder("redis.pool.idle", pool, Pool::getNumIdle).tag("pool", name)
+                    .description("idle connections").register(registry);
+            Gauge.builder("redis.pool.waiters", pool, Pool::getNumWaiters).tag("pool", name)
+                    .description("threads blocked waiting for a connection").register(registry);
+            Gauge.builder("redis.pool.max", poolMonitor, RedisPoolMonitor::getMaxTotal).tag("pool", name)
+                    .description("maximum connections").register(registry);
+            TimeGauge.builder("redis.pool.borrow.wait.mean", pool, TimeUnit.MILLISECONDS, Pool::getMeanBorrowWaitTimeMillis)
+                    .tag("pool", name).description("mean wait of the last 100 borrows").register(registry);
+            TimeGauge.builder("redis.pool.borrow.wait.max", pool, TimeUnit.MILLISECONDS, Pool::getMaxBorrowWaitTimeMillis)
+                    .tag("pool", name).description("longest borrow wait since start").register(registry);
+        }
+    }
+
+    private DistributionSummary payloadSize(String command, String direction) {
+        return DistributionSummary.builder("redis.payload.size").baseUnit("bytes")
+                .tag("command", command).tag("direction", direction)
+                .publishPercentileHistogram(percentileHistogram).register(registry);
+    }
+
+    /**
+     * 字符串及其集合的UTF-8字节数,其他类型返回-1
+     */
+    static long payloadSize(Object value) {
+        if (value instanceof String) {
+            String string = (String) value;
+            try {
+                return Utf8.encodedLength(string);
+            } catch (IllegalArgumentException e) {
+                // 不成对的代理字符按字符数估计
+                return string.length();
+            }
+        }
+        if (value instanceof byte[]) {
+            return ((byte[]) value).length;
+        }
+        if (value instanceof RedisEntry) {
+            return payloadSize(((RedisEntry) value).getValue());
+        }
+        if (value instanceof BatchResult) {
+            return payloadSize(((BatchResult<?>) value).getValues());
+        }
+        if (value instanceof Map) {
+            long size = -1;
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                size = sum(sum(size, payloadSize(entry.getKey())), payloadSize(entry.getValue()));
+            }
+            return size;
+        }
+        if (value instanceof Collection) {
+            long size = -1;
+            for (Object element : (Collection<?>) value) {
+                size = sum(size, payloadSize(element));
+            }
+            return size;
+        }
+        return -1;
+    }
+
+    private static boolean carriesPayload(Class<?> type) {
+        return type == String.class || type == Object.class || type == byte[].class
+                || Map.class.isAssignableFrom(type) || Collection.class.isAssignableFrom(type) || type == BatchResult.class;
+    }
+
+    private static long sum(long size, long elementSize) {
+        if (elementSize < 0) {
+            return size;
+        }
+        return size < 0 ? elementSize : size + elementSize;
+    }
+
+    private class CommandMeters {
+
+        private final String command;
+
+        private final Timer success;
+
+        private final Timer error;
+
+        /**
+         * 首个字符串参数为键名,不计入请求大小
+         */
+        private final int firstPayloadArg;
+
+        /**
+         * 参数中没有可能携带数据的类型时为null
+         */
+        private final DistributionSummary request;
+
+        /**
+         * 返回值不可能携带数据时为null
+         */
+        private final DistributionSummary response;
+
+        CommandMeters(Method method) {
+            this.command = method.getName();
+            this.success = timer(command, "success");
+            this.error = timer(command, "error");
+            Class<?>[] parameterTypes = method.getParameterTypes();
+            this.firstPayloadArg = parameterTypes.length > 0 && parameterTypes[0] == String.class ? 1 : 0;
+            boolean hasPayloadArg = false;
+            for (int i = firstPayloadArg; i < parameterTypes.length; i++) {
+                hasPayloadArg |= carriesPayload(parameterTypes[i]);
+            }
+            this.request = hasPayloadArg ? payloadSize(command, "request") : null;
+            this.response = carriesPayload(method.getReturnType()) ? payloadSize(command, "response") : null;
+        }
+
+        private Timer timer(String command, String outcome) {
+            return Timer.builder("redis.command").tag("command", command).tag("outcome", outcome)
+                    .publishPercentileHistogram(percentileHistogram).register(registry);
+        }
+
+        void recordRequest(Object[] args) {
+            if (request == null) {
+                return;
+            }
+            long size = -1;
+            for (int i = firstPayloadArg; i < args.length; i++) {
+                size = sum(size, payloadSize(args[i]));
+            }
+            if (size >= 0) {
+                request.record(size);
+            }
+        }
+
+        void recordResponse(Object result) {
+            if (response == null) {
+                return;
+            }
+            long size = payloadSize(result);
+            if (size >= 0) {
+                response.record(size);
+            }
+        }
+
+        void recordError(Throwable e) {
+            registry.counter("redis.command.errors", "command", command, "exception", e.getClass().getSimpleName()).increment();
+        }
+    }
+
+    private static class InstrumentedInvocationHandler implements InvocationHandler {
+
+        private final RedisService target;
+
+        private final Map<Method, CommandMeters> commands;
+
+        InstrumentedInvocationHandler(RedisService target, Map<Method, CommandMeters> commands) {
+            this.target = target;
+            this.commands = commands;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            CommandMeters meters = commands.get(method);
+            if (meters == null) {
+                if (method.getDeclaringClass() == DisposableBean.class) {
+                    if (target instanceof RedisServiceImpl) {
+                        ((RedisServiceImpl) target).destroy();
+                    }
+                    return null;
+                }
+                return invokeTarget(method, args);
+            }
+            long start = System.nanoTime();
+            try {
+                Object result = invokeTarget(method, args);
+                meters.success.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                meters.recordRequest(args);
+                meters.recordResponse(result);
+                return result;
+            } catch (Throwable e) {
+                meters.error.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                meters.recordError(e);
+                throw e;
+            }
+        }
+
+        private Object invokeTarget(Method method, Object[] args) throws Throwable {
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
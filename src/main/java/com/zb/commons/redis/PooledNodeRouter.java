@@ -0,0 +1,201 @@
+package com.zb.commons.redis;
+
+import lombok.extern.slf4j.Slf4j;
+import redis.clients.jedis.HostAndPort;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisSentinelPool;
+import redis.clients.jedis.exceptions.JedisRedirectionException;
+import redis.clients.util.Pool;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * 单个主节点的路由,用于单机及哨兵模式
+ * <p>
+ * 哨兵模式下主节点连接池由JedisSentinelPool在故障转移后自动切换.
+ * 配置了副本时只读命令轮询各副本,连接失败的副本暂停使用一段时间,全部副本不可用时退回主节点
+ *
+ * @author zhangbo
+ */
+@Slf4j
+public class PooledNodeRouter implements RedisNodeRouter {
+
+    /**
+     * 连接失败的副本暂停参与只读命令轮询的时间
+     */
+    private static final long REPLICA_RETRY_MILLIS = 5000;
+
+    private final Pool<Jedis> master;
+
+    private volatile Map<String, Pool<Jedis>> replicas;
+
+    private volatile List<Pool<Jedis>> replicaList;
+
+    /**
+     * 暂停使用的副本及恢复时间
+     */
+    private final ConcurrentMap<Pool<Jedis>, Long> downUntil = new ConcurrentHashMap<>();
+
+    private final AtomicInteger next = new AtomicInteger();
+
+    public PooledNodeRouter(Pool<Jedis> master) {
+        this(master, Collections.emptyMap());
+    }
+
+    /**
+     * @param master   主节点连接池
+     * @param replicas 副本连接池,键为节点地址,为空时只读命令也在主节点执行
+     */
+    public PooledNodeRouter(Pool<Jedis> master, Map<String, Pool<Jedis>> replicas) {
+        this.master = master;
+        this.replicas = new LinkedHashMap<>(replicas);
+        this.replicaList = new ArrayList<>(replicas.values());
+    }
+
+    public Pool<Jedis> getMaster() {
+        return master;
+    }
+
+    @Override
+    public Pool<Jedis> master(String redisKey) {
+        return master;
+    }
+
+    @Override
+    public Pool<Jedis> master(byte[] redisKey) {
+        return master;
+    }
+
+    @Override
+    public Pool<Jedis> read(String redisKey) {
+        return read();
+    }
+
+    @Override
+    public Pool<Jedis> read(byte[] redisKey) {
+        return read();
+    }
+
+    @Override
+    public Collection<Pool<Jedis>> masters() {
+        return Collections.singletonList(master);
+    }
+
+    @Override
+    public Map<String, Pool<Jedis>> pools() {
+        Map<String, Pool<Jedis>> pools = new LinkedHashMap<>();
+        pools.put(master instanceof JedisSentinelPool
+                ? ((JedisSentinelPool) master).getCurrentHostMaster().toString() : "master", master);
+        pools.putAll(replicas);
+        return pools;
+    }
+
+    @Override
+    public Pool<Jedis> redirect(JedisRedirectionException e) {
+        // 非集群节点不会返回重定向
+        throw e;
+    }
+
+    @Override
+    public int getMaxRedirects() {
+        return 0;
+    }
+
+    /**
+     * 连接失败的副本暂停使用,期间只读命令轮询其余副本
+     */
+    @Override
+    public void onConnectionFailure(Pool<Jedis> pool) {
+        if (pool == master || !replicaList.contains(pool)) {
+            return;
+        }
+        if (downUntil.put(pool, System.currentTimeMillis() + REPLICA_RETRY_MILLIS) == null) {
+            log.warn("redis replica {} unreachable, excluded from reads for {} ms", address(pool), REPLICA_RETRY_MILLIS);
+        }
+    }
+
+    /**
+     * 替换副本,新出现的副本通过factory创建连接池,不再存在的副本的连接池随即关闭
+     * @param addresses 当前可用的副本地址
+     * @param factory   副本连接池的创建方式
+     */
+    public synchronized void updateReplicas(Set<HostAndPort> addresses, Function<HostAndPort, Pool<Jedis>> factory) {
+        Map<String, Pool<Jedis>> current = replicas;
+        Map<String, Pool<Jedis>> updated = new LinkedHashMap<>();
+        for (HostAndPort address : addresses) {
+            String key = address.toString();
+            Pool<Jedis> pool = current.get(key);
+            if (pool == null) {
+                log.info("redis replica {} added", key);
+                pool = factory.apply(address);
+            }
+            updated.put(key, pool);
+        }
+        replicas = updated;
+        replicaList = new ArrayList<>(updated.values());
+        for (Map.Entry<String, Pool<Jedis>> entry : current.entrySet()) {
+            if (!updated.containsKey(entry.getKey())) {
+                log.info("redis replica {} removed", entry.getKey());
+                downUntil.remove(entry.getValue());
+                entry.getValue().destroy();
+            }
+        }
+    }
+
+    @Override
+    public void destroy() {
+        master.destroy();
+        for (Pool<Jedis> replica : replicaList) {
+            replica.destroy();
+        }
+    }
+
+    /**
+     * 从当前位置起轮询第一个未暂停的副本
+     */
+    private Pool<Jedis> read() {
+        List<Pool<Jedis>> candidates = replicaList;
+        if (candidates.isEmpty()) {
+            return master;
+        }
+        int start = next.getAndIncrement() & Integer.MAX_VALUE;
+        for (int i = 0; i < candidates.size(); i++) {
+            Pool<Jedis> replica = candidates.get((start + i) % candidates.size());
+            if (isUp(replica)) {
+                return replica;
+            }
+        }
+        return master;
+    }
+
+    private boolean isUp(Pool<Jedis> replica) {
+        Long until = downUntil.get(replica);
+        if (until == null) {
+            return true;
+        }
+        if (System.currentTimeMillis() < until) {
+            return false;
+        }
+        downUntil.remove(replica, until);
+        return true;
+    }
+
+    private String address(Pool<Jedis> pool) {
+        for (Map.Entry<String, Pool<Jedis>> entry : replicas.entrySet()) {
+            if (entry.getValue() == pool) {
+                return entry.getKey();
+            }
+        }
+        return "unknown";
+    }
+}
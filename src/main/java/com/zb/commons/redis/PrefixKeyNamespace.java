@@ -0,0 +1,100 @@
+package com.zb.commons.redis;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 以固定前缀区分的命名空间
+ * <p>
+ * 前缀的编码结果在创建时缓存,编码键名时只分配一次结果数组;
+ * 前缀可整体包在hash tag中,集群模式下命名空间内的全部键位于同一个槽
+ *
+ * @author zhangbo
+ */
+public class PrefixKeyNamespace implements RedisKeyNamespace {
+
+    /**
+     * 金惠家REDIS对象统一前缀
+     */
+    public static final PrefixKeyNamespace DEFAULT = new PrefixKeyNamespace("jhj_");
+
+    private final String prefix;
+
+    private final byte[] prefixBytes;
+
+    /**
+     * 转义了通配符的前缀,用于SCAN匹配模式
+     */
+    private final String patternPrefix;
+
+    public PrefixKeyNamespace(String prefix) {
+        this.prefix = prefix;
+        this.prefixBytes = prefix.getBytes(StandardCharsets.UTF_8);
+        this.patternPrefix = prefix.replaceAll("([*?\\[\\]\\\\])", "\\\\$1");
+    }
+
+    /**
+     * 按应用及租户组合前缀,如jhj_order_t1_
+     * @param prefix  统一前缀
+     * @param app     应用名,可为空
+     * @param tenant  租户名,可为空
+     * @param hashTag 是否把前缀包在hash tag中,如{jhj_order_t1_}
+     * @return
+     */
+    public static PrefixKeyNamespace of(String prefix, String app, String tenant, boolean hashTag) {
+        StringBuilder builder = new StringBuilder(prefix == null ? "" : prefix);
+        if (app != null && !app.isEmpty()) {
+            builder.append(app).append('_');
+        }
+        if (tenant != null && !tenant.isEmpty()) {
+            builder.append(tenant).append('_');
+        }
+        if (hashTag) {
+            builder.insert(0, '{').append('}');
+        }
+        return new PrefixKeyNamespace(builder.toString());
+    }
+
+    @Override
+    public String key(String key) {
+        return prefix.concat(key);
+    }
+
+    @Override
+    public byte[] keyBytes(String key) {
+        int length = key.length();
+        byte[] bytes = new byte[prefixBytes.length + length];
+        System.arraycopy(prefixBytes, 0, bytes, 0, prefixBytes.length);
+        for (int i = 0; i < length; i++) {
+            char c = key.charAt(i);
+            if (c >= 0x80) {
+                // 非ASCII键名按UTF-8整体编码
+                byte[] encoded = key.getBytes(StandardCharsets.UTF_8);
+                bytes = new byte[prefixBytes.length + encoded.length];
+                System.arraycopy(prefixBytes, 0, bytes, 0, prefixBytes.length);
+                System.arraycopy(encoded, 0, bytes, prefixBytes.length, encoded.length);
+                return bytes;
+            }
+            bytes[prefixBytes.length + i] = (byte) c;
+        }
+        return bytes;
+    }
+
+    @Override
+    public String pattern(String keyPattern) {
+        return patternPrefix.concat(keyPattern);
+    }
+
+    @Override
+    public String unwrap(String redisKey) {
+        return redisKey.startsWith(prefix) ? redisKey.substring(prefix.length()) : redisKey;
+    }
+
+    public String getPrefix() {
+        return prefix;
+    }
+
+    @Override
+    public String toString() {
+        return prefix;
+    }
+}
@@ -0,0 +1,258 @@
+package com.zb.commons.redis;
+
+import com.google.common.hash.Hashing;
+import redis.clients.jedis.exceptions.JedisDataException;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 基于Redis的布隆过滤器,用于海量ID的去重判断
+ * <p>
+ * 服务端加载了RedisBloom模块时使用BF.MADD/BF.MEXISTS,否则使用一个位图:
+ * 位下标由本地按murmur3_128双重哈希计算,一批元素的置位或检查在一个Lua脚本中完成.
+ * 两种实现均为一批元素一次往返,整个过滤器只占用一个键.
+ * <p>
+ * 使用哪种实现在首次访问时探测,同一服务端上的过滤器保持一致;服务端加载或卸载模块后需重建已有的过滤器.
+ * 判断为不存在时一定不存在,判断为存在时有不超过falsePositiveProbability的误判
+ *
+ * @author zhangbo
+ */
+public class RedisBloomFilter {
+
+    /**
+     * RedisBloom:过滤器不存在时按容量及误判率创建,返回各元素是否新加入.
+     * ARGV[1]为误判率,ARGV[2]为容量,ARGV[3]为过期时间,其后为元素
+     */
+    private static final RedisLuaScript MODULE_ADD_SCRIPT = new RedisLuaScript(
+            "local created = redis.call('exists', KEYS[1]) == 0 "
+                    + "if created then redis.call('bf.reserve', KEYS[1], ARGV[1], ARGV[2]) end "
+                    + "local result = redis.call('bf.madd', KEYS[1], unpack(ARGV, 4)) "
+                    + "if created and tonumber(ARGV[3]) > 0 then redis.call('expire', KEYS[1], ARGV[3]) end "
+                    + "return result");
+
+    /**
+     * RedisBloom:返回各元素是否可能存在
+     */
+    private static final RedisLuaScript MODULE_CONTAINS_SCRIPT = new RedisLuaScript(
+            "return redis.call('bf.mexists', KEYS[1], unpack(ARGV))");
+
+    /**
+     * 位图:ARGV[1]为每个元素的位数k,ARGV[2]为过期时间,其后每k个下标对应一个元素,
+     * 返回各元素是否新加入(有任一位原为0)
+     */
+    private static final RedisLuaScript BITMAP_ADD_SCRIPT = new RedisLuaScript(
+            "local k = tonumber(ARGV[1]) "
+                    + "local created = redis.call('exists', KEYS[1]) == 0 "
+                    + "local result = {} "
+                    + "for i = 3, #ARGV, k do "
+                    + "local added = 0 "
+                    + "for j = i, i + k - 1 do "
+                    + "if redis.call('setbit', KEYS[1], ARGV[j], 1) == 0 then added = 1 end end "
+                    + "result[#result + 1] = added end "
+                    + "if created and tonumber(ARGV[2]) > 0 then redis.call('expire', KEYS[1], ARGV[2]) end "
+                    + "return result");
+
+    /**
+     * 位图:ARGV[1]为每个元素的位数k,其后每k个下标对应一个元素,返回各元素是否可能存在
+     */
+    private static final RedisLuaScript BITMAP_CONTAINS_SCRIPT = new RedisLuaScript(
+            "local k = tonumber(ARGV[1]) "
+                    + "local result = {} "
+                    + "for i = 2, #ARGV, k do "
+                    + "local found = 1 "
+                    + "for j = i, i + k - 1 do "
+                    + "if redis.call('getbit', KEYS[1], ARGV[j]) == 0 then found = 0 break end end "
+                    + "result[#result + 1] = found end "
+                    + "return result");
+
+    /**
+     * 单个脚本处理的最大元素数,避免超出Lua栈及长时间阻塞服务端
+     */
+    private static final int BATCH_SIZE = 1000;
+
+    /**
+     * Redis位图的最大长度
+     */
+    private static final long MAX_BITS = 1L << 32;
+
+    private final RedisScriptRegistry scriptRegistry;
+
+    private final String redisKey;
+
+    private final List<String> keys;
+
+    private final long expectedInsertions;
+
+    private final double falsePositiveProbability;
+
+    private final int expire;
+
+    /**
+     * 位图的位数
+     */
+    private final long numBits;
+
+    /**
+     * 每个元素置位的个数
+     */
+    private final int numHashFunctions;
+
+    /**
+     * 服务端是否加载了RedisBloom,同一RedisService创建的过滤器共享,首次访问时探测
+     */
+    private final AtomicReference<Boolean> moduleAvailable;
+
+    /**
+     * @param scriptRegistry
+     * @param redisKey                 完整键名
+     * @param expectedInsertions       预计加入的元素数
+     * @param falsePositiveProbability 达到预计元素数时的误判率
+     * @param expire                   过期时间,单位为秒,自创建起计算,小于等于0时不过期
+     * @param moduleAvailable          是否使用RedisBloom,值为null时首次访问时探测
+     */
+    RedisBloomFilter(RedisScriptRegistry scriptRegistry, String redisKey, long expectedInsertions,
+                     double falsePositiveProbability, int expire, AtomicReference<Boolean> moduleAvailable) {
+        if (expectedInsertions <= 0) {
+            throw new IllegalArgumentException("expectedInsertions must be positive: " + expectedInsertions);
+        }
+        if (falsePositiveProbability <= 0 || falsePositiveProbability >= 1) {
+            throw new IllegalArgumentException("falsePositiveProbability must be in (0, 1): " + falsePositiveProbability);
+        }
+        this.scriptRegistry = scriptRegistry;
+        this.redisKey = redisKey;
+        this.keys = Collections.singletonList(redisKey);
+        this.expectedInsertions = expectedInsertions;
+        this.falsePositiveProbability = falsePositiveProbability;
+        this.expire = expire;
+        this.moduleAvailable = moduleAvailable;
+        long bits = (long) Math.ceil(-expectedInsertions * Math.log(falsePositiveProbability) / (Math.log(2) * Math.log(2)));
+        this.numBits = Math.min(Math.max(bits, 64), MAX_BITS);
+        this.numHashFunctions = Math.max(1, (int) Math.round((double) numBits / expectedInsertions * Math.log(2)));
+    }
+
+    /**
+     * 加入元素
+     * @param item
+     * @return 是否新加入,为false时该元素可能已存在
+     */
+    public boolean add(String item) {
+        return addAll(Collections.singletonList(item)).get(0);
+    }
+
+    /**
+     * 批量加入元素,每批一次往返
+     * @param items
+     * @return 与items顺序一致,是否新加入
+     */
+    public List<Boolean> addAll(List<String> items) {
+        return execute(items, true);
+    }
+
+    /**
+     * 判断元素是否可能存在
+     * @param item
+     * @return 为false时一定不存在
+     */
+    public boolean mightContain(String item) {
+        return mightContainAll(Collections.singletonList(item)).get(0);
+    }
+
+    /**
+     * 批量判断元素是否可能存在,每批一次往返
+     * @param items
+     * @return 与items顺序一致
+     */
+    public List<Boolean> mightContainAll(List<String> items) {
+        return execute(items, false);
+    }
+
+    public String getRedisKey() {
+        return redisKey;
+    }
+
+    /**
+     * 位图实现的位数,即占用的字节数乘以8
+     * @return
+     */
+    public long getNumBits() {
+        return numBits;
+    }
+
+    public int getNumHashFunctions() {
+        return numHashFunctions;
+    }
+
+    private List<Boolean> execute(List<String> items, boolean add) {
+        List<Boolean> result = new ArrayList<>(items.size());
+        for (int from = 0; from < items.size(); from += BATCH_SIZE) {
+            List<String> batch = items.subList(from, Math.min(from + BATCH_SIZE, items.size()));
+            for (Object flag : (List<?>) eval(batch, add)) {
+                result.add(((Long) flag) == 1L);
+            }
+        }
+        return result;
+    }
+
+    private Object eval(List<String> batch, boolean add) {
+        Boolean module = moduleAvailable.get();
+        if (module == null) {
+            try {
+                Object flags = evalModule(batch, add);
+                moduleAvailable.set(true);
+                return flags;
+            } catch (JedisDataException e) {
+                if (e.getMessage() == null || !e.getMessage().contains("Unknown Redis command")) {
+                    throw e;
+                }
+                moduleAvailable.set(false);
+                module = false;
+            }
+        }
+        return module ? evalModule(batch, add) : evalBitmap(batch, add);
+    }
+
+    private Object evalModule(List<String> batch, boolean add) {
+        if (!add) {
+            return scriptRegistry.eval(MODULE_CONTAINS_SCRIPT, keys, batch);
+        }
+        List<String> args = new ArrayList<>(batch.size() + 3);
+        args.add(String.valueOf(falsePositiveProbability));
+        args.add(String.valueOf(expectedInsertions));
+        args.add(String.valueOf(expire));
+        args.addAll(batch);
+        return scriptRegistry.eval(MODULE_ADD_SCRIPT, keys, args);
+    }
+
+    private Object evalBitmap(List<String> batch, boolean add) {
+        List<String> args = new ArrayList<>(batch.size() * numHashFunctions + 2);
+        args.add(String.valueOf(numHashFunctions));
+        if (add) {
+            args.add(String.valueOf(expire));
+        }
+        for (String item : batch) {
+            addOffsets(item, args);
+        }
+        return scriptRegistry.eval(add ? BITMAP_ADD_SCRIPT : BITMAP_CONTAINS_SCRIPT, keys, args);
+    }
+
+    /**
+     * 以murmur3_128的高低64位做双重哈希,得到k个位下标,与Guava BloomFilter的分布一致
+     */
+    private void addOffsets(String item, List<String> args) {
+        ByteBuffer hash = ByteBuffer.wrap(Hashing.murmur3_128().hashString(item, StandardCharsets.UTF_8).asBytes())
+                .order(ByteOrder.LITTLE_ENDIAN);
+        long hash1 = hash.getLong(0);
+        long hash2 = hash.getLong(8);
+        long combined = hash1;
+        for (int i = 0; i < numHashFunctions; i++) {
+            args.add(String.valueOf((combined & Long.MAX_VALUE) % numBits));
+            combined += hash2;
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.zb.commons.redis;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * 批量写入时的单条键值,支持逐键指定过期时间
+ *
+ * @author zhangbo
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class RedisEntry {
+
+    /**
+     * 键名,不含统一前缀
+     */
+    private String key;
+
+    /**
+     * 键值
+     */
+    private String value;
+
+    /**
+     * 过期时间,单位为秒.小于等于0时不设置过期时间
+     */
+    private int expire;
+}
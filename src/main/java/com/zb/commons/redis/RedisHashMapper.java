@@ -0,0 +1,324 @@
+package com.zb.commons.redis;
+
+import com.fasterxml.jackson.databind.JavaType;
+import com.zb.commons.json.JacksonJsonMapper;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+
+/**
+ * 对象与Redis哈希之间的映射
+ * <p>
+ * 对象的每个实例字段(不含static及transient)对应一个哈希字段,字段名即哈希字段名.
+ * 字段的读写句柄及编解码方式在首次使用某个类型时解析并缓存,之后的转换不再使用反射.
+ * <p>
+ * 整数按十进制存储,服务端可按整数紧凑编码;布尔值存为1/0;Date及Instant存为毫秒数;
+ * 枚举存为名称;其他类型存为JSON.字段少且值短的哈希可保持ziplist/listpack编码
+ *
+ * @author zhangbo
+ */
+public final class RedisHashMapper<T> {
+
+    private static final ConcurrentMap<Class<?>, RedisHashMapper<?>> MAPPERS = new ConcurrentHashMap<>();
+
+    private static final JacksonJsonMapper JSON = JacksonJsonMapper.nonNullMapper();
+
+    private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+
+    private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+
+    private final Class<T> type;
+
+    private final MethodHandle constructor;
+
+    private final Map<String, Property> properties;
+
+    private RedisHashMapper(Class<T> type) {
+        this.type = type;
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        try {
+            Constructor<T> noArgs = type.getDeclaredConstructor();
+            noArgs.setAccessible(true);
+            this.constructor = lookup.unreflectConstructor(noArgs).asType(MethodType.methodType(Object.class));
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            throw new IllegalArgumentException(type.getName() + " has no accessible no-arg constructor", e);
+        }
+        Map<String, Property> properties = new LinkedHashMap<>();
+        for (Class<?> current = type; current != null && current != Object.class; current = current.getSuperclass()) {
+            for (Field field : current.getDeclaredFields()) {
+                int modifiers = field.getModifiers();
+                if (Modifier.isStatic(modifiers) || Modifier.isTransient(modifiers) || field.isSynthetic()
+                        || properties.containsKey(field.getName())) {
+                    continue;
+                }
+                field.setAccessible(true);
+                try {
+                    properties.put(field.getName(), new Property(field.getName(), field.getType().isPrimitive(),
+                            lookup.unreflectGetter(field).asType(GETTER_TYPE),
+                            Modifier.isFinal(modifiers) ? null : lookup.unreflectSetter(field).asType(SETTER_TYPE),
+                            encoder(field), decoder(field)));
+                } catch (IllegalAccessException e) {
+                    throw new IllegalArgumentException("cannot access " + type.getName() + "." + field.getName(), e);
+                }
+            }
+        }
+        this.properties = Collections.unmodifiableMap(properties);
+    }
+
+    /**
+     * 获取类型对应的映射,同一类型只解析一次
+     * @param type 需有无参构造方法
+     * @return
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> RedisHashMapper<T> of(Class<T> type) {
+        return (RedisHashMapper<T>) MAPPERS.computeIfAbsent(type, RedisHashMapper::new);
+    }
+
+    /**
+     * 全部字段名
+     * @return
+     */
+    public Set<String> getFields() {
+        return properties.keySet();
+    }
+
+    /**
+     * 对象转为哈希
+     * @param object
+     * @param values 值不为null的字段
+     * @param nulls  值为null的字段,可为null
+     */
+    public void toHash(T object, Map<String, String> values, List<String> nulls) {
+        for (Property property : properties.values()) {
+            put(property, object, values, nulls);
+        }
+    }
+
+    /**
+     * 对象的部分字段转为哈希
+     * @param object
+     * @param fields 字段名
+     * @param values 值不为null的字段
+     * @param nulls  值为null的字段,可为null
+     */
+    public void toHash(T object, String[] fields, Map<String, String> values, List<String> nulls) {
+        for (String field : fields) {
+            put(property(field), object, values, nulls);
+        }
+    }
+
+    /**
+     * 哈希转为对象
+     * @param hash
+     * @return 哈希为空时返回null
+     */
+    public T fromHash(Map<String, String> hash) {
+        if (hash == null || hash.isEmpty()) {
+            return null;
+        }
+        T object = newInstance();
+        for (Map.Entry<String, String> entry : hash.entrySet()) {
+            Property property = properties.get(entry.getKey());
+            // 忽略对象中已删除的字段
+            if (property != null) {
+                set(property, object, entry.getValue());
+            }
+        }
+        return object;
+    }
+
+    /**
+     * 由HMGET的结果构造对象,未读取的字段保持默认值
+     * @param fields 字段名
+     * @param values 与fields顺序一致
+     * @return 全部字段都不存在时返回null
+     */
+    public T fromValues(String[] fields, List<String> values) {
+        T object = null;
+        for (int i = 0; i < fields.length; i++) {
+            String value = values.get(i);
+            if (value == null) {
+                continue;
+            }
+            if (object == null) {
+                object = newInstance();
+            }
+            set(property(fields[i]), object, value);
+        }
+        return object;
+    }
+
+    /**
+     * 校验字段名
+     * @param fields
+     */
+    public void checkFields(String[] fields) {
+        for (String field : fields) {
+            property(field);
+        }
+    }
+
+    private Property property(String field) {
+        Property property = properties.get(field);
+        if (property == null) {
+            throw new IllegalArgumentException(type.getName() + " has no field [" + field + "]");
+        }
+        return property;
+    }
+
+    private void put(Property property, T object, Map<String, String> values, List<String> nulls) {
+        Object value;
+        try {
+            value = property.getter.invokeExact((Object) object);
+        } catch (Throwable e) {
+            throw new IllegalStateException("cannot read " + type.getName() + "." + property.name, e);
+        }
+        if (value != null) {
+            values.put(property.name, property.encoder.apply(value));
+        } else if (nulls != null) {
+            nulls.add(property.name);
+        }
+    }
+
+    private void set(Property property, T object, String value) {
+        if (property.setter == null) {
+            return;
+        }
+        Object decoded = property.decoder.apply(value);
+        if (decoded == null && property.primitive) {
+            return;
+        }
+        try {
+            property.setter.invokeExact((Object) object, decoded);
+        } catch (Throwable e) {
+            throw new IllegalStateException("cannot write " + type.getName() + "." + property.name, e);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private T newInstance() {
+        try {
+            return (T) (Object) constructor.invokeExact();
+        } catch (Throwable e) {
+            throw new IllegalStateException("cannot instantiate " + type.getName(), e);
+        }
+    }
+
+    private static Function<Object, String> encoder(Field field) {
+        Class<?> type = field.getType();
+        if (type == String.class) {
+            return value -> (String) value;
+        }
+        if (type == boolean.class || type == Boolean.class) {
+            return value -> (Boolean) value ? "1" : "0";
+        }
+        if (Number.class.isAssignableFrom(type) || type.isPrimitive()) {
+            // BigDecimal不使用科学计数法
+            return type == BigDecimal.class ? value -> ((BigDecimal) value).toPlainString() : String::valueOf;
+        }
+        if (type.isEnum()) {
+            return value -> ((Enum<?>) value).name();
+        }
+        if (Date.class.isAssignableFrom(type)) {
+            return value -> String.valueOf(((Date) value).getTime());
+        }
+        if (type == Instant.class) {
+            return value -> String.valueOf(((Instant) value).toEpochMilli());
+        }
+        return JSON::toJson;
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Function<String, Object> decoder(Field field) {
+        Class<?> type = field.getType();
+        if (type == String.class) {
+            return value -> value;
+        }
+        if (type == boolean.class || type == Boolean.class) {
+            return value -> "1".equals(value) || "true".equalsIgnoreCase(value);
+        }
+        if (type == int.class || type == Integer.class) {
+            return Integer::valueOf;
+        }
+        if (type == long.class || type == Long.class) {
+            return Long::valueOf;
+        }
+        if (type == double.class || type == Double.class) {
+            return Double::valueOf;
+        }
+        if (type == float.class || type == Float.class) {
+            return Float::valueOf;
+        }
+        if (type == short.class || type == Short.class) {
+            return Short::valueOf;
+        }
+        if (type == byte.class || type == Byte.class) {
+            return Byte::valueOf;
+        }
+        if (type == char.class || type == Character.class) {
+            return value -> value.isEmpty() ? null : value.charAt(0);
+        }
+        if (type == BigDecimal.class) {
+            return BigDecimal::new;
+        }
+        if (type == BigInteger.class) {
+            return BigInteger::new;
+        }
+        if (type.isEnum()) {
+            return value -> Enum.valueOf((Class<Enum>) type, value);
+        }
+        if (type == Date.class) {
+            return value -> new Date(Long.parseLong(value));
+        }
+        if (type == Instant.class) {
+            return value -> Instant.ofEpochMilli(Long.parseLong(value));
+        }
+        JavaType javaType = JSON.getMapper().getTypeFactory().constructType(field.getGenericType());
+        return value -> JSON.fromJson(value, javaType);
+    }
+
+    private static final class Property {
+
+        private final String name;
+
+        private final boolean primitive;
+
+        private final MethodHandle getter;
+
+        /**
+         * final字段为null,读取时跳过
+         */
+        private final MethodHandle setter;
+
+        private final Function<Object, String> encoder;
+
+        private final Function<String, Object> decoder;
+
+        Property(String name, boolean primitive, MethodHandle getter, MethodHandle setter,
+                 Function<Object, String> encoder, Function<String, Object> decoder) {
+            this.name = name;
+            this.primitive = primitive;
+            this.getter = getter;
+            this.setter = setter;
+            this.encoder = encoder;
+            this.decoder = decoder;
+        }
+    }
+}
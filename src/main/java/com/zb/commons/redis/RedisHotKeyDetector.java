@@ -0,0 +1,278 @@
+package com.zb.commons.redis;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 热点键探测
+ * <p>
+ * 对读取的键按比例采样,计入滑动窗口内的Count-Min Sketch.窗口由若干个子窗口组成,
+ * 后台线程定期清空最旧的子窗口并重新排序,保留估计访问次数超过阈值的前K个键.
+ * 热点键在本地保存短TTL副本,读取直接命中本地,以分散单个分片的压力.
+ * <p>
+ * 读取路径只有原子自增及并发Map的读写,不加锁.已是热点的键只按HOT_SAMPLE_RATE稀疏采样,
+ * 避免各线程在同一个热点键的计数上争用
+ *
+ * @author zhangbo
+ */
+@Slf4j
+public class RedisHotKeyDetector {
+
+    /**
+     * Sketch的行数(哈希函数个数)及每行宽度
+     */
+    private static final int DEPTH = 4;
+
+    private static final int WIDTH = 2048;
+
+    /**
+     * 窗口划分的子窗口个数
+     */
+    private static final int BUCKETS = 6;
+
+    /**
+     * 已是热点的键在sampleRate基础上再按该比例采样,只需维持排序所需的计数
+     */
+    private static final int HOT_SAMPLE_RATE = 64;
+
+    private final AtomicLongArray[] sketches = new AtomicLongArray[BUCKETS];
+
+    private volatile int current;
+
+    private final long threshold;
+
+    private final int topK;
+
+    private final int sampleRate;
+
+    /**
+     * 当前热点键及排序时的估计访问次数,排序时整体替换
+     */
+    private volatile ConcurrentMap<String, Long> hotKeys = new ConcurrentHashMap<>();
+
+    /**
+     * 热点键已满后超过阈值的键,等待下次排序
+     */
+    private final ConcurrentMap<String, Boolean> candidates = new ConcurrentHashMap<>();
+
+    private final RedisNearCache localCopies;
+
+    private final ScheduledExecutorService scheduler;
+
+    /**
+     * @param windowSeconds  统计窗口,单位为秒
+     * @param threshold      窗口内估计访问次数达到该值即视为热点
+     * @param topK           最多同时保留的热点键个数
+     * @param sampleRate     每sampleRate次读取采样1次,计数按比例放大
+     * @param localTtlMillis 热点键本地副本的存活时间,单位为毫秒
+     */
+    public RedisHotKeyDetector(int windowSeconds, long threshold, int topK, int sampleRate, long localTtlMillis) {
+        for (int i = 0; i < BUCKETS; i++) {
+            sketches[i] = new AtomicLongArray(DEPTH * WIDTH);
+        }
+        this.threshold = threshold;
+        this.topK = topK;
+        this.sampleRate = Math.max(sampleRate, 1);
+        this.localCopies = new RedisNearCache(Collections.emptyList(), topK * 2L, localTtlMillis, TimeUnit.MILLISECONDS);
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "redis-hot-key-detector");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long period = Math.max(TimeUnit.SECONDS.toMillis(windowSeconds) / BUCKETS, 1);
+        scheduler.scheduleWithFixedDelay(this::rotate, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 记录一次读取
+     * @param key 不含统一前缀的键名
+     * @return 是否为热点键
+     */
+    public boolean record(String key) {
+        boolean hot = hotKeys.containsKey(key);
+        int rate = hot ? sampleRate * HOT_SAMPLE_RATE : sampleRate;
+        if (rate > 1 && ThreadLocalRandom.current().nextInt(rate) != 0) {
+            return hot;
+        }
+        int h1 = mix(key.hashCode());
+        int h2 = mix(h1 + 0x9E3779B9) | 1;
+        AtomicLongArray sketch = sketches[current];
+        for (int row = 0; row < DEPTH; row++) {
+            sketch.addAndGet(index(row, h1, h2), rate);
+        }
+        if (hot) {
+            return true;
+        }
+        long count = estimate(h1, h2);
+        if (count < threshold) {
+            return false;
+        }
+        if (hotKeys.size() < topK && promote(key, count)) {
+            log.info("redis hot key detected: {}", key);
+            return true;
+        }
+        if (candidates.size() < topK) {
+            candidates.put(key, Boolean.TRUE);
+        }
+        return false;
+    }
+
+    /**
+     * 是否为当前热点键,不计入访问
+     * @param key 不含统一前缀的键名
+     * @return
+     */
+    public boolean isHot(String key) {
+        return hotKeys.containsKey(key);
+    }
+
+    /**
+     * 窗口内的估计访问次数
+     * @param key 不含统一前缀的键名
+     * @return
+     */
+    public long estimate(String key) {
+        int h1 = mix(key.hashCode());
+        return estimate(h1, mix(h1 + 0x9E3779B9) | 1);
+    }
+
+    /**
+     * 当前热点键,按估计访问次数从高到低排列
+     * @return
+     */
+    public List<HotKey> getHotKeys() {
+        List<HotKey> result = new ArrayList<>();
+        for (String key : hotKeys.keySet()) {
+            result.add(new HotKey(key, estimate(key)));
+        }
+        result.sort(Comparator.comparingLong(HotKey::getCount).reversed());
+        return result;
+    }
+
+    /**
+     * 热点键的本地副本
+     * @return
+     */
+    public RedisNearCache getLocalCopies() {
+        return localCopies;
+    }
+
+    public void destroy() {
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * 热点键未满时加入,与rotate互斥以免超出topK或写入已被替换的Map
+     * @return 是否加入
+     */
+    private synchronized boolean promote(String key, long count) {
+        if (hotKeys.size() >= topK) {
+            return false;
+        }
+        return hotKeys.putIfAbsent(key, count) == null;
+    }
+
+    /**
+     * 清空最旧的子窗口作为新的当前子窗口,并重新选出前K个热点键
+     */
+    private void rotate() {
+        try {
+            int next = (current + 1) % BUCKETS;
+            AtomicLongArray oldest = sketches[next];
+            for (int i = 0; i < oldest.length(); i++) {
+                oldest.set(i, 0);
+            }
+            current = next;
+
+            Set<String> keys = new HashSet<>(hotKeys.keySet());
+            keys.addAll(candidates.keySet());
+            candidates.clear();
+            List<HotKey> ranked = new ArrayList<>(keys.size());
+            for (String key : keys) {
+                long count = estimate(key);
+                if (count >= threshold) {
+                    ranked.add(new HotKey(key, count));
+                }
+            }
+            ranked.sort(Comparator.comparingLong(HotKey::getCount).reversed());
+            ConcurrentMap<String, Long> selected = new ConcurrentHashMap<>();
+            for (HotKey hotKey : ranked.subList(0, Math.min(topK, ranked.size()))) {
+                selected.put(hotKey.getKey(), hotKey.getCount());
+            }
+            for (String previous : replaceHotKeys(selected).keySet()) {
+                if (!selected.containsKey(previous)) {
+                    localCopies.evict(previous);
+                }
+            }
+        } catch (RuntimeException e) {
+            log.warn("redis hot key rotation failed", e);
+        }
+    }
+
+    /**
+     * @return 被替换的热点键
+     */
+    private synchronized Map<String, Long> replaceHotKeys(ConcurrentMap<String, Long> selected) {
+        Map<String, Long> previous = hotKeys;
+        hotKeys = selected;
+        return previous;
+    }
+
+    private long estimate(int h1, int h2) {
+        long total = 0;
+        for (AtomicLongArray sketch : sketches) {
+            long min = Long.MAX_VALUE;
+            for (int row = 0; row < DEPTH; row++) {
+                min = Math.min(min, sketch.get(index(row, h1, h2)));
+            }
+            total += min;
+        }
+        return total;
+    }
+
+    private static int index(int row, int h1, int h2) {
+        return row * WIDTH + ((h1 + row * h2) & (WIDTH - 1));
+    }
+
+    /**
+     * murmur3的混合函数,使相近的hashCode分散到不同的列
+     */
+    private static int mix(int h) {
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
+
+    /**
+     * 热点键及其估计访问次数
+     */
+    @Getter
+    @ToString
+    @AllArgsConstructor
+    public static class HotKey {
+
+        private final String key;
+
+        private final long count;
+    }
+}
@@ -0,0 +1,46 @@
+package com.zb.commons.redis;
+
+import redis.clients.util.SafeEncoder;
+
+/**
+ * 键名命名空间
+ * <p>
+ * RedisService等组件经由命名空间把业务键名转换为Redis中的完整键名,
+ * 共用一个Redis的多个应用或租户使用不同的命名空间互相隔离
+ *
+ * @author zhangbo
+ */
+public interface RedisKeyNamespace {
+
+    /**
+     * 完整键名
+     * @param key 业务键名
+     * @return
+     */
+    String key(String key);
+
+    /**
+     * 完整键名的UTF-8编码
+     * @param key 业务键名
+     * @return
+     */
+    default byte[] keyBytes(String key) {
+        return SafeEncoder.encode(key(key));
+    }
+
+    /**
+     * SCAN/KEYS使用的完整匹配模式
+     * @param keyPattern 业务键名的匹配模式
+     * @return
+     */
+    default String pattern(String keyPattern) {
+        return key(keyPattern);
+    }
+
+    /**
+     * 由完整键名还原业务键名,不属于该命名空间的键名原样返回
+     * @param redisKey 完整键名
+     * @return
+     */
+    String unwrap(String redisKey);
+}
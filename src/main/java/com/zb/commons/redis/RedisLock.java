@@ -0,0 +1,101 @@
+package com.zb.commons.redis;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 可重入的分布式锁
+ * <p>
+ * 同一线程可多次获取,释放相同次数后才真正删除锁.持有期间由{@link RedisLockWatchdog}定期续期,
+ * 进程崩溃后锁在一个租约时间内自动失效.支持try-with-resources:
+ *
+ * <pre>
+ * try (RedisLock lock = redisService.getLock("order_" + orderId)) {
+ *     if (lock.tryLock(5, TimeUnit.SECONDS)) {
+ *         // ...
+ *     }
+ * }
+ * </pre>
+ *
+ * @author zhangbo
+ */
+public class RedisLock implements AutoCloseable {
+
+    private final RedisServiceImpl redisService;
+
+    private final RedisLockWatchdog watchdog;
+
+    private final String lockName;
+
+    RedisLock(RedisServiceImpl redisService, RedisLockWatchdog watchdog, String lockName) {
+        this.redisService = redisService;
+        this.watchdog = watchdog;
+        this.lockName = lockName;
+    }
+
+    /**
+     * 尝试获得锁,不等待
+     * @return
+     */
+    public boolean tryLock() {
+        return tryLock(0, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 尝试获得锁
+     * @param acquireTimeout 获取锁的超时时间
+     * @param unit
+     * @return 是否获得锁
+     */
+    public boolean tryLock(long acquireTimeout, TimeUnit unit) {
+        RedisLockWatchdog.HeldLock held = watchdog.get(lockName);
+        if (held != null && held.owner == Thread.currentThread()) {
+            held.holds++;
+            return true;
+        }
+        String identifier = redisService.acquireLock(lockName, unit.toMillis(acquireTimeout), watchdog.getLeaseSeconds());
+        if (identifier == null) {
+            return false;
+        }
+        watchdog.register(lockName, new RedisLockWatchdog.HeldLock(identifier, Thread.currentThread()));
+        return true;
+    }
+
+    /**
+     * 释放锁
+     * @throws IllegalMonitorStateException 当前线程未持有该锁
+     */
+    public void unlock() {
+        RedisLockWatchdog.HeldLock held = watchdog.get(lockName);
+        if (held == null || held.owner != Thread.currentThread()) {
+            throw new IllegalMonitorStateException("lock [" + lockName + "] is not held by current thread");
+        }
+        if (--held.holds > 0) {
+            return;
+        }
+        watchdog.unregister(lockName, held);
+        redisService.releaseLock(lockName, held.identifier);
+    }
+
+    /**
+     * 当前线程是否持有该锁
+     * @return
+     */
+    public boolean isHeldByCurrentThread() {
+        RedisLockWatchdog.HeldLock held = watchdog.get(lockName);
+        return held != null && held.owner == Thread.currentThread();
+    }
+
+    public String getLockName() {
+        return lockName;
+    }
+
+    /**
+     * 当前线程持有该锁时释放一次,否则忽略
+     */
+    @Override
+    public void close() {
+        if (isHeldByCurrentThread()) {
+            unlock();
+        }
+    }
+}
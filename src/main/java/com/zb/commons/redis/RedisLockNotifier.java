@@ -0,0 +1,91 @@
+package com.zb.commons.redis;
+
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 分布式锁释放通知
+ * <p>
+ * 释放锁的脚本会向指定频道发布锁名,本节点上等待该锁的线程随即被唤醒重新竞争.
+ * 所有锁共用一个订阅连接,等待中的线程不占用连接池中的连接
+ *
+ * @author zhangbo
+ */
+public class RedisLockNotifier implements MessageListener {
+
+    private final ConcurrentMap<String, Signal> signals = new ConcurrentHashMap<>();
+
+    /**
+     * 登记对指定锁的等待,等待结束后必须调用{@link #unregister(String)}
+     * @param lockName
+     * @return
+     */
+    public Signal register(String lockName) {
+        return signals.compute(lockName, (name, signal) -> {
+            if (signal == null) {
+                signal = new Signal();
+            }
+            signal.waiters++;
+            return signal;
+        });
+    }
+
+    public void unregister(String lockName) {
+        signals.computeIfPresent(lockName, (name, signal) -> --signal.waiters == 0 ? null : signal);
+    }
+
+    /**
+     * 消息体为被释放的锁名
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        Signal signal = signals.get(new String(message.getBody(), StandardCharsets.UTF_8));
+        if (signal != null) {
+            signal.fire();
+        }
+    }
+
+    /**
+     * 单个锁的唤醒信号.每次释放使代数加一,等待方据此判断在两次尝试之间是否错过了通知
+     */
+    public static final class Signal {
+
+        /**
+         * 仅在ConcurrentMap.compute中修改
+         */
+        private int waiters;
+
+        private long generation;
+
+        public synchronized long generation() {
+            return generation;
+        }
+
+        synchronized void fire() {
+            generation++;
+            notifyAll();
+        }
+
+        /**
+         * 等待释放通知
+         * @param seenGeneration 上一次尝试前读到的代数
+         * @param timeoutMillis
+         * @throws InterruptedException
+         */
+        public synchronized void await(long seenGeneration, long timeoutMillis) throws InterruptedException {
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+            while (generation == seenGeneration) {
+                long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                if (remaining <= 0) {
+                    return;
+                }
+                wait(remaining);
+            }
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package com.zb.commons.redis;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 分布式锁续期看门狗
+ * <p>
+ * 记录本进程持有的全部{@link RedisLock},由单个后台线程每隔租约时间的1/3统一续期一次,
+ * 所有锁的续期在同一批管道中完成,而不是每把锁一个定时器.
+ * 锁已不属于本进程(例如续期中断超过租约时间)或持有线程已结束时移出登记并记录告警
+ *
+ * @author zhangbo
+ */
+@Slf4j
+public class RedisLockWatchdog {
+
+    private final RedisServiceImpl redisService;
+
+    private final int leaseSeconds;
+
+    private final ConcurrentMap<String, HeldLock> heldLocks = new ConcurrentHashMap<>();
+
+    private final ScheduledExecutorService scheduler;
+
+    /**
+     * @param redisService
+     * @param leaseSeconds 租约时间,单位为秒
+     */
+    public RedisLockWatchdog(RedisServiceImpl redisService, int leaseSeconds) {
+        this.redisService = redisService;
+        this.leaseSeconds = Math.max(leaseSeconds, 3);
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "redis-lock-watchdog");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long period = TimeUnit.SECONDS.toMillis(this.leaseSeconds) / 3;
+        scheduler.scheduleWithFixedDelay(this::renew, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    public int getLeaseSeconds() {
+        return leaseSeconds;
+    }
+
+    HeldLock get(String lockName) {
+        return heldLocks.get(lockName);
+    }
+
+    void register(String lockName, HeldLock held) {
+        heldLocks.put(lockName, held);
+    }
+
+    void unregister(String lockName, HeldLock held) {
+        heldLocks.remove(lockName, held);
+    }
+
+    /**
+     * 批量续期本进程持有的全部锁
+     */
+    void renew() {
+        if (heldLocks.isEmpty()) {
+            return;
+        }
+        List<String> lockNames = new ArrayList<>(heldLocks.size());
+        List<HeldLock> locks = new ArrayList<>(heldLocks.size());
+        for (Map.Entry<String, HeldLock> entry : heldLocks.entrySet()) {
+            // 持有线程已结束而未释放的锁不再续期,等待租约到期自动释放
+            if (!entry.getValue().owner.isAlive()) {
+                log.warn("distributed lock [{}] owner thread [{}] terminated without release",
+                        entry.getKey(), entry.getValue().owner.getName());
+                heldLocks.remove(entry.getKey(), entry.getValue());
+                continue;
+            }
+            lockNames.add(entry.getKey());
+            locks.add(entry.getValue());
+        }
+        if (lockNames.isEmpty()) {
+            return;
+        }
+        try {
+            BatchResult<Boolean> result = redisService.renewLocks(lockNames, locks, TimeUnit.SECONDS.toMillis(leaseSeconds));
+            for (int i = 0; i < lockNames.size(); i++) {
+                // 执行失败的留待下次续期,明确返回false说明锁已被他人持有或已过期
+                if (result.isSuccess(i) && !Boolean.TRUE.equals(result.get(i))) {
+                    log.warn("distributed lock [{}] lost before release", lockNames.get(i));
+                    heldLocks.remove(lockNames.get(i), locks.get(i));
+                }
+            }
+        } catch (RuntimeException e) {
+            log.warn("renew distributed locks error", e);
+        }
+    }
+
+    public void destroy() {
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * 本进程持有的锁.holds仅由持有线程修改
+     */
+    static final class HeldLock {
+
+        final String identifier;
+
+        final Thread owner;
+
+        int holds = 1;
+
+        HeldLock(String identifier, Thread owner) {
+            this.identifier = identifier;
+            this.owner = owner;
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.zb.commons.redis;
+
+import com.google.common.hash.Hashing;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Lua脚本及其SHA1摘要
+ * <p>
+ * 摘要在本地计算,与SCRIPT LOAD返回的值一致,可直接用于EVALSHA
+ *
+ * @author zhangbo
+ */
+public final class RedisLuaScript {
+
+    private final String script;
+
+    private final String sha1;
+
+    public RedisLuaScript(String script) {
+        this.script = script;
+        this.sha1 = Hashing.sha1().hashString(script, StandardCharsets.UTF_8).toString();
+    }
+
+    public String getScript() {
+        return script;
+    }
+
+    public String getSha1() {
+        return sha1;
+    }
+}
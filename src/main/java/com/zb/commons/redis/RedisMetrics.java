@@ -0,0 +1,32 @@
+package com.zb.commons.redis;
+
+/**
+ * Redis操作的指标采集
+ * <p>
+ * 启用后以包装对象的方式接入,未启用时不创建任何包装,调用路径与未接入指标时完全相同.
+ * 接口本身不依赖具体的指标库,指标库不在类路径上时不会被加载
+ *
+ * @author zhangbo
+ */
+public interface RedisMetrics {
+
+    /**
+     * 包装RedisService,记录每个方法的耗时、错误数及读写的数据大小
+     * @param redisService
+     * @return
+     */
+    RedisService instrument(RedisService redisService);
+
+    /**
+     * 包装对象值的序列化,记录序列化结果的字节数
+     * @param serializer
+     * @return
+     */
+    RedisValueSerializer instrument(RedisValueSerializer serializer);
+
+    /**
+     * 注册连接池的借出、空闲、等待线程数及借出等待时间
+     * @param poolMonitor
+     */
+    void bindPools(RedisPoolMonitor poolMonitor);
+}
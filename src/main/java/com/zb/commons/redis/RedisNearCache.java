@@ -0,0 +1,226 @@
+package com.zb.commons.redis;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Redis本地近端缓存(L1)
+ * <p>
+ * 仅缓存键名匹配指定前缀的字符串及散列字段;容量有上限,按近似LRU淘汰,
+ * 单条缓存的存活时间取本地TTL与Redis剩余TTL中的较小值,每个散列缓存的字段数也有上限.
+ * <p>
+ * 本节点写入时立即淘汰本地缓存,并通过Redis发布订阅通知其他节点淘汰
+ *
+ * @author zhangbo
+ */
+@Slf4j
+public class RedisNearCache implements MessageListener {
+
+    private static final int VERSION_STRIPES = 1024;
+
+    private final List<String> keyPrefixes;
+
+    private final long ttlMillis;
+
+    private final Cache<String, Entry> values;
+
+    private final Cache<String, ConcurrentMap<String, Entry>> hashes;
+
+    private final int maximumFieldsPerKey;
+
+    /**
+     * 按键名分段的版本号,淘汰时递增.加载前后版本不一致说明期间该键(或同段的键)发生过写入,加载结果不再放入缓存
+     */
+    private final AtomicLongArray versions = new AtomicLongArray(VERSION_STRIPES);
+
+    /**
+     * 与versions同段的锁,版本检查与放入缓存在锁内完成,与淘汰互斥
+     */
+    private final Object[] locks = new Object[VERSION_STRIPES];
+
+    public RedisNearCache(List<String> keyPrefixes, long maximumSize, int ttl) {
+        this(keyPrefixes, maximumSize, ttl, TimeUnit.SECONDS);
+    }
+
+    public RedisNearCache(List<String> keyPrefixes, long maximumSize, long ttl, TimeUnit unit) {
+        this(keyPrefixes, maximumSize, ttl, unit, 1000);
+    }
+
+    /**
+     * @param keyPrefixes         启用本地缓存的键名前缀
+     * @param maximumSize         最大条目数,字符串与散列分别计算
+     * @param ttl                 本地最长存活时间
+     * @param unit
+     * @param maximumFieldsPerKey 每个散列最多缓存的字段数,超出后新字段不再缓存
+     */
+    public RedisNearCache(List<String> keyPrefixes, long maximumSize, long ttl, TimeUnit unit, int maximumFieldsPerKey) {
+        this.keyPrefixes = keyPrefixes;
+        this.ttlMillis = unit.toMillis(ttl);
+        this.maximumFieldsPerKey = maximumFieldsPerKey;
+        for (int i = 0; i < locks.length; i++) {
+            locks[i] = new Object();
+        }
+        this.values = CacheBuilder.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl, unit)
+                .build();
+        this.hashes = CacheBuilder.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl, unit)
+                .build();
+    }
+
+    /**
+     * 指定的键是否启用本地缓存
+     * @param key 不含统一前缀的键名
+     * @return
+     */
+    public boolean isCacheable(String key) {
+        if (key == null || keyPrefixes == null) {
+            return false;
+        }
+        for (String prefix : keyPrefixes) {
+            if (key.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 加载前取得的版本号,放入缓存时传回
+     * @param key 不含统一前缀的键名
+     * @return
+     */
+    public long version(String key) {
+        return versions.get(stripe(key));
+    }
+
+    public Entry get(String key) {
+        return alive(values.getIfPresent(key));
+    }
+
+    public Entry hashGet(String key, String field) {
+        ConcurrentMap<String, Entry> fields = hashes.getIfPresent(key);
+        return fields == null ? null : alive(fields.get(field));
+    }
+
+    /**
+     * 放入缓存
+     * @param key
+     * @param value
+     * @param redisTtlMillis Redis中的剩余TTL,负数表示未设置过期时间
+     * @param loadVersion    加载前取得的版本号
+     */
+    public void put(String key, Object value, long redisTtlMillis, long loadVersion) {
+        if (value == null) {
+            return;
+        }
+        int stripe = stripe(key);
+        synchronized (locks[stripe]) {
+            if (versions.get(stripe) == loadVersion) {
+                values.put(key, new Entry(value, expireAt(redisTtlMillis)));
+            }
+        }
+    }
+
+    public void hashPut(String key, String field, Object value, long redisTtlMillis, long loadVersion) {
+        if (value == null) {
+            return;
+        }
+        int stripe = stripe(key);
+        synchronized (locks[stripe]) {
+            if (versions.get(stripe) != loadVersion) {
+                return;
+            }
+            ConcurrentMap<String, Entry> fields = hashes.getIfPresent(key);
+            if (fields == null) {
+                fields = new ConcurrentHashMap<>();
+                hashes.put(key, fields);
+            }
+            if (fields.size() < maximumFieldsPerKey || fields.containsKey(field)) {
+                fields.put(field, new Entry(value, expireAt(redisTtlMillis)));
+            }
+        }
+    }
+
+    /**
+     * 淘汰指定键的本地缓存(字符串及散列)
+     * @param key
+     */
+    public void evict(String key) {
+        int stripe = stripe(key);
+        synchronized (locks[stripe]) {
+            versions.incrementAndGet(stripe);
+            values.invalidate(key);
+            hashes.invalidate(key);
+        }
+    }
+
+    public void clear() {
+        // 逐段递增版本,等待正在放入的加载结果完成后再整体清空
+        for (int i = 0; i < locks.length; i++) {
+            synchronized (locks[i]) {
+                versions.incrementAndGet(i);
+            }
+        }
+        values.invalidateAll();
+        hashes.invalidateAll();
+    }
+
+    /**
+     * 接收其他节点发布的淘汰通知,消息体为不含统一前缀的键名
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String key = new String(message.getBody(), StandardCharsets.UTF_8);
+        log.debug("near cache invalidated by remote, key = {}", key);
+        evict(key);
+    }
+
+    private int stripe(String key) {
+        int h = key.hashCode();
+        return (h ^ (h >>> 16)) & (VERSION_STRIPES - 1);
+    }
+
+    private long expireAt(long redisTtlMillis) {
+        long ttl = redisTtlMillis > 0 ? Math.min(redisTtlMillis, ttlMillis) : ttlMillis;
+        return System.currentTimeMillis() + ttl;
+    }
+
+    private Entry alive(Entry entry) {
+        if (entry == null || entry.expireAt < System.currentTimeMillis()) {
+            return null;
+        }
+        return entry;
+    }
+
+    /**
+     * 缓存条目
+     */
+    public static final class Entry {
+
+        private final Object value;
+
+        private final long expireAt;
+
+        Entry(Object value, long expireAt) {
+            this.value = value;
+            this.expireAt = expireAt;
+        }
+
+        public Object getValue() {
+            return value;
+        }
+    }
+}
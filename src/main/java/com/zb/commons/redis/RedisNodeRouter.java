@@ -0,0 +1,159 @@
+package com.zb.commons.redis;
+
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.exceptions.JedisAskDataException;
+import redis.clients.jedis.exceptions.JedisConnectionException;
+import redis.clients.jedis.exceptions.JedisRedirectionException;
+import redis.clients.util.Pool;
+import redis.clients.util.SafeEncoder;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Redis节点路由
+ * <p>
+ * 按键名选择执行命令的节点连接池:单机及哨兵模式只有一个主节点,集群模式按槽路由.
+ * 只读命令可按读策略路由到副本
+ *
+ * @author zhangbo
+ */
+public interface RedisNodeRouter {
+
+    /**
+     * 写命令所在的主节点
+     * @param redisKey 完整键名
+     * @return
+     */
+    Pool<Jedis> master(String redisKey);
+
+    /**
+     * 只读命令所在的节点,未启用副本读取时与{@link #master(String)}相同
+     * @param redisKey 完整键名
+     * @return
+     */
+    Pool<Jedis> read(String redisKey);
+
+    /**
+     * 按UTF-8编码的完整键名选择主节点,避免字节键名的命令为路由再构造String
+     * @param redisKey 完整键名的UTF-8编码
+     * @return
+     */
+    default Pool<Jedis> master(byte[] redisKey) {
+        return master(SafeEncoder.encode(redisKey));
+    }
+
+    /**
+     * @param redisKey 完整键名的UTF-8编码
+     * @return
+     * @see #read(String)
+     */
+    default Pool<Jedis> read(byte[] redisKey) {
+        return read(SafeEncoder.encode(redisKey));
+    }
+
+    /**
+     * 全部主节点,SCAN及脚本加载需逐个执行
+     * @return
+     */
+    Collection<Pool<Jedis>> masters();
+
+    /**
+     * 全部节点的连接池,键为节点地址
+     * @return
+     */
+    Map<String, Pool<Jedis>> pools();
+
+    /**
+     * 收到MOVED或ASK时返回目标节点,MOVED同时更新槽分布
+     * @param e
+     * @return
+     */
+    Pool<Jedis> redirect(JedisRedirectionException e);
+
+    /**
+     * 单条命令最多跟随的重定向次数
+     * @return
+     */
+    int getMaxRedirects();
+
+    /**
+     * 节点连接失败时调用,集群模式据此重新获取槽分布
+     * @param pool 连接失败的节点
+     */
+    default void onConnectionFailure(Pool<Jedis> pool) {
+    }
+
+    void destroy();
+
+    /**
+     * 在键所在节点上执行回调
+     * <p>
+     * 跟随MOVED/ASK重定向;只读命令所在副本不可用时退回主节点执行;
+     * 主节点不可用时更新路由,键已由其他节点负责(如故障转移)时在重定向次数内重试
+     *
+     * @param redisKey 完整键名
+     * @param readOnly 是否只读命令
+     * @param callback
+     * @return
+     */
+    default <T> T execute(String redisKey, boolean readOnly, JedisCallback<T> callback) {
+        return execute(() -> master(redisKey), readOnly ? () -> read(redisKey) : null, callback);
+    }
+
+    /**
+     * @param redisKey 完整键名的UTF-8编码
+     * @see #execute(String, boolean, JedisCallback)
+     */
+    default <T> T execute(byte[] redisKey, boolean readOnly, JedisCallback<T> callback) {
+        return execute(() -> master(redisKey), readOnly ? () -> read(redisKey) : null, callback);
+    }
+
+    /**
+     * @param master 键所在的主节点
+     * @param read   只读命令所在的节点,为null时在主节点执行
+     * @see #execute(String, boolean, JedisCallback)
+     */
+    default <T> T execute(Supplier<Pool<Jedis>> master, Supplier<Pool<Jedis>> read, JedisCallback<T> callback) {
+        Pool<Jedis> masterPool = master.get();
+        Pool<Jedis> pool = read != null ? read.get() : masterPool;
+        boolean asking = false;
+        for (int redirects = 0; ; redirects++) {
+            Jedis jedis = null;
+            try {
+                jedis = pool.getResource();
+                if (asking) {
+                    jedis.asking();
+                }
+                return callback.doInJedis(jedis);
+            } catch (JedisRedirectionException e) {
+                if (redirects >= getMaxRedirects()) {
+                    throw e;
+                }
+                pool = redirect(e);
+                asking = e instanceof JedisAskDataException;
+                if (!asking) {
+                    masterPool = pool;
+                }
+            } catch (JedisConnectionException e) {
+                onConnectionFailure(pool);
+                if (pool != masterPool) {
+                    pool = masterPool;
+                    asking = false;
+                    continue;
+                }
+                Pool<Jedis> renewed = redirects < getMaxRedirects() ? master.get() : masterPool;
+                if (renewed == masterPool) {
+                    throw e;
+                }
+                masterPool = renewed;
+                pool = renewed;
+            } finally {
+                if (jedis != null) {
+                    jedis.close();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package com.zb.commons.redis;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.jedis.JedisConnectionFactory;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import redis.clients.jedis.Jedis;
+import redis.clients.util.Pool;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Redis连接池使用情况
+ * <p>
+ * 同时报告Jedis连接池及RedisTemplate所用连接工厂的情况,用于比较双连接栈与单连接栈两种模式下的连接数量.
+ * 配置了上报间隔时定期输出到日志
+ *
+ * @author zhangbo
+ */
+@Slf4j
+public class RedisPoolMonitor {
+
+    private static final String TEMPLATE = "redisTemplate";
+
+    private final RedisNodeRouter router;
+
+    private final int maxTotal;
+
+    private final RedisConnectionFactory connectionFactory;
+
+    private ScheduledExecutorService scheduler;
+
+    /**
+     * @param router            直接使用Jedis的操作所用的各节点连接池
+     * @param maxTotal          每个Jedis连接池的最大连接数
+     * @param connectionFactory RedisTemplate使用的连接工厂
+     */
+    public RedisPoolMonitor(RedisNodeRouter router, int maxTotal, RedisConnectionFactory connectionFactory) {
+        this.router = router;
+        this.maxTotal = maxTotal;
+        this.connectionFactory = connectionFactory;
+    }
+
+    /**
+     * 当前连接池使用情况
+     * @return
+     */
+    public List<RedisPoolStats> snapshot() {
+        Map<String, Pool<Jedis>> pools = jedisPools();
+        List<RedisPoolStats> stats = new ArrayList<>(pools.size() + 1);
+        for (Map.Entry<String, Pool<Jedis>> pool : pools.entrySet()) {
+            stats.add(poolStats(pool.getKey(), TEMPLATE.equals(pool.getKey()) ? "shared" : "pooled", pool.getValue()));
+        }
+
+        if (connectionFactory instanceof LettuceConnectionFactory) {
+            RedisPoolStats template = new RedisPoolStats();
+            template.setName(TEMPLATE);
+            if (((LettuceConnectionFactory) connectionFactory).getShareNativeConnection()) {
+                // 共享的原生连接是单个多路复用连接
+                template.setType("multiplexed");
+                template.setMaxTotal(1);
+            } else {
+                template.setType("pooled");
+            }
+            stats.add(template);
+        } else if (connectionFactory instanceof JedisConnectionFactory) {
+            RedisPoolStats template = new RedisPoolStats();
+            template.setName(TEMPLATE);
+            template.setType("pooled");
+            template.setMaxTotal(((JedisConnectionFactory) connectionFactory).getPoolConfig().getMaxTotal());
+            stats.add(template);
+        }
+        return stats;
+    }
+
+    /**
+     * 每个Jedis连接池的最大连接数
+     * @return
+     */
+    int getMaxTotal() {
+        return maxTotal;
+    }
+
+    /**
+     * 可直接读取状态的Jedis连接池,键为连接来源名称
+     * @return
+     */
+    Map<String, Pool<Jedis>> jedisPools() {
+        Map<String, Pool<Jedis>> pools = router.pools();
+        Map<String, Pool<Jedis>> named = new LinkedHashMap<>();
+        for (Map.Entry<String, Pool<Jedis>> pool : pools.entrySet()) {
+            // 多节点时按节点地址区分
+            named.put(pools.size() == 1 ? "jedis" : "jedis[" + pool.getKey() + "]", pool.getValue());
+        }
+        if (connectionFactory instanceof JedisPoolConnectionFactory) {
+            named.put(TEMPLATE, ((JedisPoolConnectionFactory) connectionFactory).getPool());
+        }
+        return named;
+    }
+
+    /**
+     * 按固定间隔输出连接池使用情况
+     * @param intervalSeconds 小于等于0时不输出
+     */
+    public void start(int intervalSeconds) {
+        if (intervalSeconds <= 0) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "redis-pool-monitor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(() -> {
+            for (RedisPoolStats stats : snapshot()) {
+                log.info("redis pool stats: {}", stats);
+            }
+        }, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+    }
+
+    public void destroy() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    private RedisPoolStats poolStats(String name, String type, Pool<Jedis> pool) {
+        RedisPoolStats stats = new RedisPoolStats();
+        stats.setName(name);
+        stats.setType(type);
+        stats.setMaxTotal(maxTotal);
+        stats.setActive(pool.getNumActive());
+        stats.setIdle(pool.getNumIdle());
+        stats.setWaiters(pool.getNumWaiters());
+        stats.setMeanBorrowWaitMillis(pool.getMeanBorrowWaitTimeMillis());
+        stats.setMaxBorrowWaitMillis(pool.getMaxBorrowWaitTimeMillis());
+        return stats;
+    }
+}
@@ -0,0 +1,56 @@
+package com.zb.commons.redis;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+
+/**
+ * 连接池使用情况快照
+ *
+ * @author zhangbo
+ */
+@Getter
+@Setter
+@ToString
+public class RedisPoolStats {
+
+    /**
+     * 连接来源,如jedis、redisTemplate
+     */
+    private String name;
+
+    /**
+     * 连接类型:pooled为连接池,multiplexed为单个多路复用连接,shared为与其他来源共用连接池
+     */
+    private String type;
+
+    /**
+     * 最大连接数,未知时为-1
+     */
+    private int maxTotal = -1;
+
+    /**
+     * 已借出的连接数,未知时为-1
+     */
+    private int active = -1;
+
+    /**
+     * 空闲连接数,未知时为-1
+     */
+    private int idle = -1;
+
+    /**
+     * 等待借出连接的线程数,未知时为-1
+     */
+    private int waiters = -1;
+
+    /**
+     * 平均借出等待时间,单位为毫秒,未知时为-1
+     */
+    private long meanBorrowWaitMillis = -1;
+
+    /**
+     * 最长借出等待时间,单位为毫秒,未知时为-1
+     */
+    private long maxBorrowWaitMillis = -1;
+}
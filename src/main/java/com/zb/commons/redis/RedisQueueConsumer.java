@@ -0,0 +1,116 @@
+package com.zb.commons.redis;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * {@link RedisReliableQueue}的一组消费者
+ * <p>
+ * 队列为空时各消费者阻塞在BRPOPLPUSH上,空闲时不产生额外的请求.
+ * 超时元素的恢复由消费者轮流执行,每半个可见性超时时间最多执行一次
+ *
+ * @author zhangbo
+ */
+@Slf4j
+public class RedisQueueConsumer {
+
+    private final RedisReliableQueue queue;
+
+    private final int batchSize;
+
+    private final int blockTimeoutSeconds;
+
+    private final long recoverIntervalMillis;
+
+    private final Consumer<String> handler;
+
+    private final AtomicLong nextRecoverAt = new AtomicLong();
+
+    private final AtomicInteger active = new AtomicInteger();
+
+    private volatile boolean running = true;
+
+    RedisQueueConsumer(RedisReliableQueue queue, int batchSize, int blockTimeoutSeconds, long visibilityTimeoutMillis,
+                       Consumer<String> handler) {
+        this.queue = queue;
+        this.batchSize = Math.max(batchSize, 1);
+        this.blockTimeoutSeconds = blockTimeoutSeconds;
+        this.recoverIntervalMillis = Math.max(visibilityTimeoutMillis / 2, 1000);
+        this.handler = handler;
+    }
+
+    /**
+     * 停止消费.正在阻塞等待的消费者在本次等待结束后退出,已取出的元素处理完后退出
+     */
+    public void stop() {
+        running = false;
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * 仍在运行的消费者个数
+     * @return
+     */
+    public int getActiveCount() {
+        return active.get();
+    }
+
+    void run() {
+        active.incrementAndGet();
+        try {
+            while (running && !Thread.currentThread().isInterrupted()) {
+                try {
+                    recoverIfDue();
+                    List<RedisReliableQueue.Delivery> deliveries = queue.poll(batchSize, blockTimeoutSeconds, TimeUnit.SECONDS);
+                    List<RedisReliableQueue.Delivery> done = new ArrayList<>(deliveries.size());
+                    for (RedisReliableQueue.Delivery delivery : deliveries) {
+                        try {
+                            handler.accept(delivery.getItem());
+                            done.add(delivery);
+                        } catch (RuntimeException e) {
+                            log.warn("redis queue [{}] handler failed, item will be redelivered after visibility timeout",
+                                    queue.getRedisKey(), e);
+                        }
+                    }
+                    queue.ack(done);
+                } catch (RuntimeException e) {
+                    log.warn("redis queue [{}] consumer error", queue.getRedisKey(), e);
+                    pause();
+                }
+            }
+        } finally {
+            active.decrementAndGet();
+        }
+    }
+
+    private void recoverIfDue() {
+        long now = System.currentTimeMillis();
+        long due = nextRecoverAt.get();
+        if (now >= due && nextRecoverAt.compareAndSet(due, now + recoverIntervalMillis)) {
+            long recovered = queue.recover();
+            if (recovered > 0) {
+                log.info("redis queue [{}] redelivered {} timed out items", queue.getRedisKey(), recovered);
+            }
+        }
+    }
+
+    /**
+     * Redis不可用时暂停片刻,避免空转
+     */
+    private void pause() {
+        try {
+            Thread.sleep(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
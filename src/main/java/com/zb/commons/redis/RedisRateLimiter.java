@@ -0,0 +1,188 @@
+package com.zb.commons.redis;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 基于Redis的分布式限流器
+ * <p>
+ * 每次检查只执行一个Lua脚本,判断与扣减原子完成.被拒绝时脚本同时返回预计可用的等待时间,
+ * 在此之前相同或更多许可的请求直接在本地拒绝,不再访问Redis.
+ * 时间取自调用方时钟,各节点时钟需保持同步
+ *
+ * @author zhangbo
+ */
+public class RedisRateLimiter {
+
+    /**
+     * 令牌桶:容量为permits,按permits/period的速率补充,允许不超过容量的突发
+     */
+    private static final RedisLuaScript TOKEN_BUCKET_SCRIPT = new RedisLuaScript(
+            "local capacity = tonumber(ARGV[1]) "
+                    + "local rate = capacity / tonumber(ARGV[2]) "
+                    + "local now = tonumber(ARGV[3]) "
+                    + "local requested = tonumber(ARGV[4]) "
+                    + "local bucket = redis.call('hmget', KEYS[1], 'tokens', 'ts') "
+                    + "local tokens = tonumber(bucket[1]) or capacity "
+                    + "local ts = tonumber(bucket[2]) or now "
+                    + "if now > ts then tokens = math.min(capacity, tokens + (now - ts) * rate) ts = now end "
+                    + "local wait = 0 "
+                    + "if tokens >= requested then tokens = tokens - requested "
+                    + "else wait = math.ceil((requested - tokens) / rate) end "
+                    + "redis.call('hmset', KEYS[1], 'tokens', tokens, 'ts', ts) "
+                    + "redis.call('pexpire', KEYS[1], ARGV[2] * 2) "
+                    + "if wait == 0 then return {1, 0} end "
+                    + "return {0, wait}");
+
+    /**
+     * 滑动窗口:按上一个固定窗口的剩余占比加权估算最近一个周期内的请求数
+     */
+    private static final RedisLuaScript SLIDING_WINDOW_SCRIPT = new RedisLuaScript(
+            "local limit = tonumber(ARGV[1]) "
+                    + "local window = tonumber(ARGV[2]) "
+                    + "local now = tonumber(ARGV[3]) "
+                    + "local requested = tonumber(ARGV[4]) "
+                    + "local current = math.floor(now / window) "
+                    + "local state = redis.call('hmget', KEYS[1], 'window', 'count', 'previous') "
+                    + "local w = tonumber(state[1]) "
+                    + "local count = tonumber(state[2]) or 0 "
+                    + "local previous = tonumber(state[3]) or 0 "
+                    + "if w == nil then count = 0 previous = 0 "
+                    + "elseif w == current - 1 then previous = count count = 0 "
+                    + "elseif w < current then count = 0 previous = 0 "
+                    + "else current = w end "
+                    + "local elapsed = now - current * window "
+                    + "if elapsed < 0 then elapsed = 0 end "
+                    + "local estimated = previous * (window - elapsed) / window + count "
+                    + "if estimated + requested > limit then "
+                    + "local wait = window - elapsed "
+                    + "if count + requested <= limit and previous > 0 then "
+                    + "wait = math.min(wait, math.ceil(window * (1 - (limit - count - requested) / previous)) - elapsed) end "
+                    + "if wait < 1 then wait = 1 end "
+                    + "return {0, wait} end "
+                    + "redis.call('hmset', KEYS[1], 'window', current, 'count', count + requested, 'previous', previous) "
+                    + "redis.call('pexpire', KEYS[1], window * 2) "
+                    + "return {1, 0}");
+
+    public enum Algorithm {
+        /**
+         * 令牌桶
+         */
+        TOKEN_BUCKET,
+        /**
+         * 滑动窗口计数
+         */
+        SLIDING_WINDOW
+    }
+
+    private final RedisScriptRegistry scriptRegistry;
+
+    private final String redisKey;
+
+    private final Algorithm algorithm;
+
+    private final long permits;
+
+    private final long periodMillis;
+
+    /**
+     * 最近一次被拒绝的请求,在其预计可用时间之前不再访问Redis
+     */
+    private volatile Rejection rejection;
+
+    /**
+     * @param scriptRegistry
+     * @param redisKey       完整键名
+     * @param algorithm
+     * @param permits        每个周期允许的许可数,令牌桶时为桶容量
+     * @param periodMillis   周期,单位为毫秒
+     */
+    RedisRateLimiter(RedisScriptRegistry scriptRegistry, String redisKey, Algorithm algorithm, long permits, long periodMillis) {
+        this.scriptRegistry = scriptRegistry;
+        this.redisKey = redisKey;
+        this.algorithm = algorithm;
+        this.permits = permits;
+        this.periodMillis = periodMillis;
+    }
+
+    /**
+     * 获取1个许可
+     * @return 是否获取成功
+     */
+    public boolean tryAcquire() {
+        return tryAcquire(1);
+    }
+
+    /**
+     * 一次获取多个许可,全部获取成功或全部不获取
+     * @param requested 许可数
+     * @return 是否获取成功
+     */
+    public boolean tryAcquire(int requested) {
+        return acquireOrWait(requested) == 0;
+    }
+
+    /**
+     * 在超时时间内获取多个许可,被拒绝时按预计可用时间等待后重试
+     * @param requested 许可数
+     * @param timeout
+     * @param unit
+     * @return 是否获取成功
+     * @throws InterruptedException
+     */
+    public boolean tryAcquire(int requested, long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + unit.toMillis(timeout);
+        while (true) {
+            long wait = acquireOrWait(requested);
+            if (wait == 0) {
+                return true;
+            }
+            long remaining = deadline - System.currentTimeMillis();
+            if (wait < 0 || wait > remaining) {
+                return false;
+            }
+            Thread.sleep(wait);
+        }
+    }
+
+    public String getRedisKey() {
+        return redisKey;
+    }
+
+    /**
+     * @return 获取成功为0;否则为预计可用的等待时间,单位为毫秒,永远无法满足时为-1
+     */
+    private long acquireOrWait(int requested) {
+        if (requested > permits) {
+            return -1;
+        }
+        long now = System.currentTimeMillis();
+        Rejection last = rejection;
+        if (last != null && now < last.retryAt && requested >= last.requested) {
+            return last.retryAt - now;
+        }
+        RedisLuaScript script = algorithm == Algorithm.TOKEN_BUCKET ? TOKEN_BUCKET_SCRIPT : SLIDING_WINDOW_SCRIPT;
+        List<?> result = (List<?>) scriptRegistry.eval(script, Collections.singletonList(redisKey), Arrays.asList(
+                String.valueOf(permits), String.valueOf(periodMillis), String.valueOf(now), String.valueOf(requested)));
+        if ((Long) result.get(0) == 1) {
+            return 0;
+        }
+        long wait = Math.max((Long) result.get(1), 1);
+        rejection = new Rejection(now + wait, requested);
+        return wait;
+    }
+
+    private static final class Rejection {
+
+        private final long retryAt;
+
+        private final int requested;
+
+        private Rejection(long retryAt, int requested) {
+            this.retryAt = retryAt;
+            this.requested = requested;
+        }
+    }
+}
@@ -0,0 +1,302 @@
+package com.zb.commons.redis;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * 基于Redis List的可靠队列
+ * <p>
+ * 取出的元素原子地移入处理中列表,并记录可见性超时时间;处理完成后确认(ack)才会删除.
+ * 消费者异常退出时,超时未确认的元素由{@link #recover()}放回队列重新投递.
+ * 队列为空时使用BRPOPLPUSH阻塞等待,不轮询Redis.
+ * <p>
+ * 每次投递的超时时间即为该次投递的令牌,确认时令牌与当前记录不一致(已被重新投递)的不会删除,
+ * 避免超时后才确认的消费者删除其他消费者正在处理的投递.
+ * 三个键使用同一个hash tag,集群模式下位于同一个槽.超时记录以元素值为成员,同一时刻队列中的元素应唯一(例如包含业务ID)
+ *
+ * @author zhangbo
+ */
+public class RedisReliableQueue {
+
+    /**
+     * 非阻塞地取出至多ARGV[1]个元素移入处理中列表,并记录超时时间ARGV[2]
+     */
+    private static final RedisLuaScript POP_SCRIPT = new RedisLuaScript(
+            "local items = {} "
+                    + "for i = 1, tonumber(ARGV[1]) do "
+                    + "local item = redis.call('rpoplpush', KEYS[1], KEYS[2]) "
+                    + "if not item then break end "
+                    + "redis.call('zadd', KEYS[3], ARGV[2], item) "
+                    + "items[#items + 1] = item end "
+                    + "return items");
+
+    /**
+     * 从处理中列表删除已确认的元素,ARGV为元素与令牌交替排列,超时记录与令牌一致时才删除
+     */
+    private static final RedisLuaScript ACK_SCRIPT = new RedisLuaScript(
+            "local n = 0 "
+                    + "for i = 1, #ARGV, 2 do "
+                    + "local score = redis.call('zscore', KEYS[2], ARGV[i]) "
+                    + "if score and tonumber(score) == tonumber(ARGV[i + 1]) then "
+                    + "redis.call('zrem', KEYS[2], ARGV[i]) "
+                    + "n = n + redis.call('lrem', KEYS[1], 1, ARGV[i]) end end "
+                    + "return n");
+
+    /**
+     * 将超时未确认的元素放回队列的出队端;处理中列表里没有超时记录的元素
+     * (取出后、记录超时前消费者退出)补记超时时间
+     */
+    private static final RedisLuaScript RECOVER_SCRIPT = new RedisLuaScript(
+            "local expired = redis.call('zrangebyscore', KEYS[3], '-inf', ARGV[1], 'LIMIT', 0, ARGV[2]) "
+                    + "local n = 0 "
+                    + "for _, item in ipairs(expired) do "
+                    + "redis.call('zrem', KEYS[3], item) "
+                    + "if redis.call('lrem', KEYS[2], 1, item) > 0 then redis.call('rpush', KEYS[1], item) n = n + 1 end end "
+                    + "for _, item in ipairs(redis.call('lrange', KEYS[2], -tonumber(ARGV[2]), -1)) do "
+                    + "if not redis.call('zscore', KEYS[3], item) then redis.call('zadd', KEYS[3], ARGV[3], item) end end "
+                    + "return n");
+
+    /**
+     * 每次恢复最多处理的元素个数
+     */
+    private static final int RECOVER_BATCH = 100;
+
+    private final RedisNodeRouter router;
+
+    private final RedisScriptRegistry scriptRegistry;
+
+    private final String readyKey;
+
+    private final String processingKey;
+
+    private final String deadlineKey;
+
+    private final List<String> keys;
+
+    private final long visibilityTimeoutMillis;
+
+    private final int blockTimeoutSeconds;
+
+    private final Executor defaultExecutor;
+
+    private final int poolMaxTotal;
+
+    /**
+     * @param router
+     * @param scriptRegistry
+     * @param redisKey                完整键名,处理中列表及超时记录在其后追加后缀
+     * @param visibilityTimeoutMillis 取出后未确认的元素重新投递的时间,单位为毫秒
+     * @param blockTimeoutSeconds     队列为空时单次阻塞等待的时间,单位为秒
+     * @param defaultExecutor         消费者默认使用的线程池,可为null
+     * @param poolMaxTotal            队列所在节点连接池的最大连接数,小于等于0时不校验消费者个数
+     */
+    RedisReliableQueue(RedisNodeRouter router, RedisScriptRegistry scriptRegistry, String redisKey,
+                       long visibilityTimeoutMillis, int blockTimeoutSeconds, Executor defaultExecutor, int poolMaxTotal) {
+        this.router = router;
+        this.scriptRegistry = scriptRegistry;
+        this.readyKey = redisKey;
+        this.processingKey = redisKey + "_processing";
+        this.deadlineKey = redisKey + "_deadlines";
+        this.keys = Arrays.asList(readyKey, processingKey, deadlineKey);
+        this.visibilityTimeoutMillis = visibilityTimeoutMillis;
+        this.blockTimeoutSeconds = Math.max(blockTimeoutSeconds, 1);
+        this.defaultExecutor = defaultExecutor;
+        this.poolMaxTotal = poolMaxTotal;
+    }
+
+    /**
+     * 入队
+     * @param item
+     */
+    public void push(String item) {
+        router.execute(readyKey, false, jedis -> jedis.lpush(readyKey, item));
+    }
+
+    /**
+     * 批量入队,按列表顺序出队
+     * @param items
+     */
+    public void pushAll(List<String> items) {
+        if (items.isEmpty()) {
+            return;
+        }
+        String[] values = items.toArray(new String[0]);
+        router.execute(readyKey, false, jedis -> jedis.lpush(readyKey, values));
+    }
+
+    /**
+     * 取出一个元素,队列为空时阻塞等待
+     * @param timeout 最长等待时间,不足1秒按1秒计
+     * @param unit
+     * @return 超时仍无元素时返回null
+     */
+    public Delivery poll(long timeout, TimeUnit unit) {
+        List<Delivery> deliveries = poll(1, timeout, unit);
+        return deliveries.isEmpty() ? null : deliveries.get(0);
+    }
+
+    /**
+     * 一次取出至多max个元素,队列为空时阻塞等待第一个元素
+     * @param max
+     * @param timeout 最长等待时间,不足1秒按1秒计
+     * @param unit
+     * @return 超时仍无元素时返回空列表
+     */
+    public List<Delivery> poll(int max, long timeout, TimeUnit unit) {
+        List<Delivery> deliveries = new ArrayList<>();
+        pop(max, deliveries);
+        if (!deliveries.isEmpty()) {
+            return deliveries;
+        }
+        int seconds = (int) Math.max(unit.toSeconds(timeout), 1);
+        String first = router.execute(readyKey, false, jedis -> jedis.brpoplpush(readyKey, processingKey, seconds));
+        if (first == null) {
+            return Collections.emptyList();
+        }
+        long deadline = deadline();
+        router.execute(deadlineKey, false, jedis -> jedis.zadd(deadlineKey, deadline, first));
+        deliveries.add(new Delivery(first, deadline));
+        if (max > 1) {
+            pop(max - 1, deliveries);
+        }
+        return deliveries;
+    }
+
+    /**
+     * 确认元素已处理完成
+     * @param delivery
+     */
+    public void ack(Delivery delivery) {
+        ack(Collections.singletonList(delivery));
+    }
+
+    /**
+     * 批量确认
+     * @param deliveries
+     * @return 确认成功的个数,超时后已被重新投递的不计入
+     */
+    public long ack(List<Delivery> deliveries) {
+        if (deliveries.isEmpty()) {
+            return 0;
+        }
+        List<String> args = new ArrayList<>(deliveries.size() * 2);
+        for (Delivery delivery : deliveries) {
+            args.add(delivery.getItem());
+            args.add(String.valueOf(delivery.getToken()));
+        }
+        return (Long) scriptRegistry.eval(ACK_SCRIPT, Arrays.asList(processingKey, deadlineKey), args);
+    }
+
+    /**
+     * 将超时未确认的元素放回队列
+     * @return 放回的个数
+     */
+    public long recover() {
+        String now = String.valueOf(System.currentTimeMillis());
+        return (Long) scriptRegistry.eval(RECOVER_SCRIPT, keys,
+                Arrays.asList(now, String.valueOf(RECOVER_BATCH), String.valueOf(deadline())));
+    }
+
+    /**
+     * 待处理的元素个数
+     * @return
+     */
+    public long size() {
+        return router.execute(readyKey, true, jedis -> jedis.llen(readyKey));
+    }
+
+    /**
+     * 处理中(已取出未确认)的元素个数
+     * @return
+     */
+    public long processingSize() {
+        return router.execute(processingKey, true, jedis -> jedis.llen(processingKey));
+    }
+
+    /**
+     * 使用默认线程池启动消费者
+     * @see #startConsumers(Executor, int, int, Consumer)
+     */
+    public RedisQueueConsumer startConsumers(int consumers, int batchSize, Consumer<String> handler) {
+        if (defaultExecutor == null) {
+            throw new IllegalStateException("no TaskExecutor available, enable threadpool or pass an executor");
+        }
+        return startConsumers(defaultExecutor, consumers, batchSize, handler);
+    }
+
+    /**
+     * 启动消费者
+     * <p>
+     * 每个消费者在线程池中占用一个线程,循环地批量取出元素并依次交给handler处理,
+     * 处理成功的元素在每批结束时一次确认;handler抛出异常的元素不确认,超时后重新投递.
+     * 消费者同时负责定期恢复超时元素
+     * <p>
+     * 队列为空时每个消费者在BRPOPLPUSH上占用连接池的一个连接,最长为阻塞等待时间.
+     * 连接池的max-active应不小于本进程全部队列的消费者总数加上其他命令的并发数,
+     * 否则其他命令在max-wait为-1时会一直等待可用连接;消费者个数不小于max-active时直接拒绝
+     *
+     * @param executor  线程池,可用线程数应不少于consumers
+     * @param consumers 消费者个数,应小于连接池的max-active
+     * @param batchSize 每次最多取出的元素个数
+     * @param handler
+     * @return
+     * @throws IllegalArgumentException 消费者个数不小于连接池的最大连接数
+     */
+    public RedisQueueConsumer startConsumers(Executor executor, int consumers, int batchSize, Consumer<String> handler) {
+        if (poolMaxTotal > 0 && consumers >= poolMaxTotal) {
+            throw new IllegalArgumentException("redis queue [" + readyKey + "] " + consumers + " consumers would hold all "
+                    + poolMaxTotal + " pooled connections while blocking, increase jedis.pool.max-active");
+        }
+        RedisQueueConsumer consumer = new RedisQueueConsumer(this, batchSize, blockTimeoutSeconds, visibilityTimeoutMillis, handler);
+        for (int i = 0; i < consumers; i++) {
+            executor.execute(consumer::run);
+        }
+        return consumer;
+    }
+
+    public String getRedisKey() {
+        return readyKey;
+    }
+
+    /**
+     * 非阻塞地取出至多max个元素
+     */
+    @SuppressWarnings("unchecked")
+    private void pop(int max, List<Delivery> deliveries) {
+        long deadline = deadline();
+        List<String> items = (List<String>) scriptRegistry.eval(POP_SCRIPT, keys,
+                Arrays.asList(String.valueOf(max), String.valueOf(deadline)));
+        for (String item : items) {
+            deliveries.add(new Delivery(item, deadline));
+        }
+    }
+
+    private long deadline() {
+        return System.currentTimeMillis() + visibilityTimeoutMillis;
+    }
+
+    /**
+     * 一次投递:元素及确认时使用的令牌
+     */
+    @Getter
+    @ToString
+    @AllArgsConstructor
+    public static class Delivery {
+
+        private final String item;
+
+        /**
+         * 本次投递的可见性超时时间,毫秒时间戳
+         */
+        private final long token;
+    }
+}
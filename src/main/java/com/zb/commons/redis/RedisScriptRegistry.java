@@ -0,0 +1,139 @@
+package com.zb.commons.redis;
+
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Response;
+import redis.clients.jedis.exceptions.JedisNoScriptException;
+import redis.clients.util.Pool;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Lua脚本注册表
+ * <p>
+ * 脚本按SHA1通过EVALSHA调用,只在服务端缺少脚本(NOSCRIPT,如重启、主从切换或SCRIPT FLUSH之后)时
+ * 加载一次并重试,避免每次调用都发送脚本正文并由服务端重新编译.
+ * 业务方也可注册自己的脚本实现原子操作
+ *
+ * @author zhangbo
+ */
+public class RedisScriptRegistry {
+
+    private final RedisNodeRouter router;
+
+    private final ConcurrentMap<String, RedisLuaScript> scripts = new ConcurrentHashMap<>();
+
+    public RedisScriptRegistry(Pool<Jedis> pool) {
+        this(new PooledNodeRouter(pool));
+    }
+
+    public RedisScriptRegistry(RedisNodeRouter router) {
+        this.router = router;
+    }
+
+    /**
+     * 注册脚本,同名脚本已存在时返回已注册的脚本
+     * @param name
+     * @param script
+     * @return
+     */
+    public RedisLuaScript register(String name, String script) {
+        RedisLuaScript luaScript = new RedisLuaScript(script);
+        RedisLuaScript existing = scripts.putIfAbsent(name, luaScript);
+        return existing != null ? existing : luaScript;
+    }
+
+    /**
+     * 获取已注册的脚本
+     * @param name
+     * @return 未注册时返回null
+     */
+    public RedisLuaScript get(String name) {
+        return scripts.get(name);
+    }
+
+    /**
+     * 执行已注册的脚本
+     * @param name
+     * @param keys 完整键名
+     * @param args
+     * @return
+     */
+    public Object eval(String name, List<String> keys, List<String> args) {
+        RedisLuaScript script = scripts.get(name);
+        if (script == null) {
+            throw new IllegalArgumentException("lua script [" + name + "] is not registered");
+        }
+        return eval(script, keys, args);
+    }
+
+    /**
+     * 在第一个键所在的主节点上执行脚本.集群模式下全部键须在同一个槽
+     * @param script
+     * @param keys 完整键名
+     * @param args
+     * @return
+     */
+    public Object eval(RedisLuaScript script, List<String> keys, List<String> args) {
+        if (keys.isEmpty()) {
+            Jedis jedis = router.masters().iterator().next().getResource();
+            try {
+                return eval(jedis, script, keys, args);
+            } finally {
+                jedis.close();
+            }
+        }
+        return router.execute(keys.get(0), false, jedis -> eval(jedis, script, keys, args));
+    }
+
+    /**
+     * 在指定连接上执行脚本,服务端缺少脚本时加载后重试一次
+     * @param jedis
+     * @param script
+     * @param keys
+     * @param args
+     * @return
+     */
+    public Object eval(Jedis jedis, RedisLuaScript script, List<String> keys, List<String> args) {
+        try {
+            return jedis.evalsha(script.getSha1(), keys, args);
+        } catch (JedisNoScriptException e) {
+            jedis.scriptLoad(script.getScript());
+            return jedis.evalsha(script.getSha1(), keys, args);
+        }
+    }
+
+    /**
+     * 在管道中追加EVALSHA.管道中无法就地重试,调用方可通过{@link #isNoScript(Exception)}
+     * 识别失败原因,调用{@link #load(RedisLuaScript)}后重新执行
+     * @param pipeline
+     * @param script
+     * @param keys
+     * @param args
+     * @return
+     */
+    public Response<String> evalsha(Pipeline pipeline, RedisLuaScript script, List<String> keys, List<String> args) {
+        return pipeline.evalsha(script.getSha1(), keys, args);
+    }
+
+    /**
+     * 将脚本加载到全部主节点
+     * @param script
+     */
+    public void load(RedisLuaScript script) {
+        for (Pool<Jedis> pool : router.masters()) {
+            Jedis jedis = pool.getResource();
+            try {
+                jedis.scriptLoad(script.getScript());
+            } finally {
+                jedis.close();
+            }
+        }
+    }
+
+    public boolean isNoScript(Exception e) {
+        return e instanceof JedisNoScriptException;
+    }
+}
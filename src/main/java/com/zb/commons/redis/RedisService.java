@@ -4,6 +4,9 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 
 /**
  * 基于jedis封装的Redis Service Interface
@@ -18,19 +21,51 @@ public interface RedisService {
 
     /**
      * 获取符合规则的键名集合
+     * <p>
+     * 基于SCAN增量遍历,不会阻塞Redis服务端,但结果会全部加载到内存.
+     * 键数量较多时请使用{@link #scanKeys(String)}
      * @param keyPattern
-     * @return
+     * @return 包含统一前缀的键名
      */
     public Set<String> getKeys(String keyPattern);
 
+    /**
+     * 以流的方式惰性遍历符合规则的键名,基于SCAN按页拉取
+     * <p>
+     * 同一个键可能出现多次,需要去重时由调用方处理
+     * @param keyPattern
+     * @return 包含统一前缀的键名
+     */
+    public Stream<String> scanKeys(String keyPattern);
+
+    /**
+     * 分批遍历符合规则的键名,每凑满batchSize个键回调一次,最后一批可能不足batchSize
+     * @param keyPattern
+     * @param batchSize
+     * @param callback 参数为包含统一前缀的键名
+     */
+    public void scanKeys(String keyPattern, int batchSize, Consumer<List<String>> callback);
+
     /**
      * 缓存.基于 Redis String 类型
+     * <p>
+     * 写入与过期时间在一次往返中原子完成;expire小于等于0时不设置过期时间
      * @param key
      * @param value
      * @param expire
      */
     public void put(String key, String value, int expire);
 
+    /**
+     * 缓存对象.基于 Redis String 类型,值由RedisValueSerializer序列化为二进制
+     * <p>
+     * 以此方式写入的键只能通过{@link #get(String, Class)}读取
+     * @param key
+     * @param value 非null对象
+     * @param expire 小于等于0时不设置过期时间
+     */
+    public void put(String key, Object value, int expire);
+
     /**
      * 存储.基于 Redis String 类型
      * @param key
@@ -45,6 +80,38 @@ public interface RedisService {
      */
     public Object get(String key);
 
+    /**
+     * 根据键名获取由{@link #put(String, Object, int)}写入的对象
+     * @param key
+     * @param type
+     * @return 键不存在时返回null
+     */
+    public <T> T get(String key, Class<T> type);
+
+    /**
+     * 读取缓存,未命中时调用loader加载并写入
+     * <p>
+     * 同一进程内同一个键的并发未命中只加载一次;跨节点通过短时分布式锁合并加载,
+     * 其他节点在锁释放后直接读取加载结果.启用提前刷新时,临近过期的键会被某个请求按概率提前重新加载
+     *
+     * @param key
+     * @param expire 过期时间,单位为秒.小于等于0时不设置过期时间
+     * @param loader 返回null时不写入缓存
+     * @return
+     */
+    public String getOrLoad(String key, int expire, Supplier<String> loader);
+
+    /**
+     * 读取由{@link #put(String, Object, int)}写入的对象,未命中时调用loader加载并写入,
+     * 加载的合并方式与{@link #getOrLoad(String, int, Supplier)}相同
+     * @param key
+     * @param expire 过期时间,单位为秒.小于等于0时不设置过期时间
+     * @param type
+     * @param loader 返回null时不写入缓存
+     * @return
+     */
+    public <T> T getOrLoad(String key, int expire, Class<T> type, Supplier<T> loader);
+
     /**
      * 根据键名删除匹配的键
      *
@@ -72,6 +139,8 @@ public interface RedisService {
 
     /**
      * 缓存.基于 Redis Hash 类型
+     * <p>
+     * 写入与过期时间在一次往返中原子完成;expire小于等于0时不设置过期时间
      * @param key
      * @param field
      * @param value
@@ -102,8 +171,46 @@ public interface RedisService {
      */
     public void hashPutAll(String key, Map<String, String> values);
 
+    /**
+     * 以哈希存储对象,每个字段对应一个哈希字段,值为null的字段从哈希中删除
+     * <p>
+     * 整数按十进制存储,布尔值存为1/0,日期存为毫秒数,字段少且值短时服务端可使用紧凑编码
+     * @param key
+     * @param value  需有无参构造方法
+     * @param expire 过期时间,单位为秒,小于等于0时不设置
+     * @see RedisHashMapper
+     */
+    public void hashPutObject(String key, Object value, int expire);
+
+    /**
+     * 只更新对象的部分字段,其他字段及过期时间保持不变
+     * @param key
+     * @param value
+     * @param fields 字段名
+     */
+    public void hashPutObjectFields(String key, Object value, String... fields);
+
+    /**
+     * 读取以哈希存储的对象
+     * @param key
+     * @param type
+     * @return 不存在时返回null
+     */
+    public <T> T hashGetObject(String key, Class<T> type);
+
+    /**
+     * 只读取对象的部分字段(HMGET),其他字段为默认值
+     * @param key
+     * @param type
+     * @param fields 字段名
+     * @return 读取的字段都不存在时返回null
+     */
+    public <T> T hashGetObject(String key, Class<T> type, String... fields);
+
     /**
      * 创建或更新指定列表类型键的键名对应的 Redis List(从列表左边插入元素)
+     * <p>
+     * 插入与过期时间在一次往返中原子完成
      *
      * @param key
      * @param value
@@ -163,6 +270,40 @@ public interface RedisService {
      * @param timeUnit 
      */
     public Long getTTL(String key, TimeUnit timeUnit);
+
+    /**
+     * 向HyperLogLog加入元素,用于UV等基数统计,每个键固定占用不超过12KB
+     *
+     * @param key
+     * @param values
+     * @param expire 过期时间,单位为秒,小于等于0时不设置
+     * @return 估算的基数是否变化
+     */
+    public boolean hyperLogLogAdd(String key, List<String> values, int expire);
+
+    /**
+     * 获取HyperLogLog估算的基数,标准误差约0.81%
+     *
+     * @param key
+     * @return
+     */
+    public long hyperLogLogCount(String key);
+
+    /**
+     * 获取多个HyperLogLog并集的估算基数,如多日合计的UV.集群模式下全部键须在同一个槽
+     *
+     * @param keys
+     * @return
+     */
+    public long hyperLogLogCount(List<String> keys);
+
+    /**
+     * 合并多个HyperLogLog,结果写入destinationKey.集群模式下全部键须在同一个槽
+     *
+     * @param destinationKey
+     * @param sourceKeys
+     */
+    public void hyperLogLogMerge(String destinationKey, List<String> sourceKeys);
     
     /**
      * 尝试获得锁
@@ -180,4 +321,93 @@ public interface RedisService {
 	 * @return
 	 */
 	public boolean releaseLock(String lockName, String identifier);
+
+	/**
+	 * 获取可重入的分布式锁对象
+	 * <p>
+	 * 持有期间由后台看门狗自动续期,无需预估持有时间
+	 * @param lockName 锁名,与{@link #tryLock(String, long, long)}使用同一命名空间
+	 * @return
+	 */
+	public RedisLock getLock(String lockName);
+
+	/**
+	 * 获取分布式限流器,同名限流器在各节点共享配额
+	 * @param name      限流器名
+	 * @param algorithm 限流算法
+	 * @param permits   每个周期允许的许可数,令牌桶时为桶容量
+	 * @param period    周期
+	 * @param unit
+	 * @return
+	 */
+	public RedisRateLimiter getRateLimiter(String name, RedisRateLimiter.Algorithm algorithm, long permits, long period, TimeUnit unit);
+
+	/**
+	 * 获取可靠队列,用于替代基于listRightPop/listRightPopAndLeftPush的轮询消费
+	 * @param name 队列名
+	 * @return
+	 */
+	public RedisReliableQueue getQueue(String name);
+
+	/**
+	 * 获取布隆过滤器,用于替代逐个keyExists的海量ID去重
+	 * @param name                     过滤器名
+	 * @param expectedInsertions       预计加入的元素数
+	 * @param falsePositiveProbability 达到预计元素数时的误判率,如0.01
+	 * @param expire                   过期时间,单位为秒,自创建起计算,小于等于0时不过期
+	 * @return
+	 */
+	public RedisBloomFilter getBloomFilter(String name, long expectedInsertions, double falsePositiveProbability, int expire);
+
+    /**
+     * 批量获取字符串类型键的键值,基于管道执行
+     * <p>
+     * 结果与keys顺序一致,不存在的键对应null
+     *
+     * @param keys
+     * @return
+     */
+    public BatchResult<String> multiGet(List<String> keys);
+
+    /**
+     * 批量缓存字符串类型键,基于管道执行,每个键可单独指定过期时间
+     *
+     * @param entries
+     * @return 与entries顺序一致,写入成功为true
+     */
+    public BatchResult<Boolean> multiPut(List<RedisEntry> entries);
+
+    /**
+     * 批量缓存字符串类型键,所有键使用相同的过期时间
+     *
+     * @param values
+     * @param expire
+     * @return 与values的迭代顺序一致
+     */
+    public BatchResult<Boolean> multiPut(Map<String, String> values, int expire);
+
+    /**
+     * 批量获取多个散列类型键中同一字段的值
+     *
+     * @param keys
+     * @param field
+     * @return
+     */
+    public BatchResult<String> multiHashGet(List<String> keys, String field);
+
+    /**
+     * 批量获取多个散列类型键的全部数据
+     *
+     * @param keys
+     * @return
+     */
+    public BatchResult<Map<String, String>> multiHashGetAll(List<String> keys);
+
+    /**
+     * 批量删除键
+     *
+     * @param keys
+     * @return 与keys顺序一致,键存在并被删除时为true
+     */
+    public BatchResult<Boolean> multiDelete(List<String> keys);
 }
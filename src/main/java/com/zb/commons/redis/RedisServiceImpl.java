@@ -1,19 +1,50 @@
 package com.zb.commons.redis;
 
+import com.google.common.collect.Iterators;
 import com.zb.commons.validate.CommonValidateUtil;
 import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.scheduling.concurrent.ExecutorConfigurationSupport;
 import redis.clients.jedis.Jedis;
-import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Response;
+import redis.clients.jedis.exceptions.JedisAskDataException;
+import redis.clients.jedis.exceptions.JedisConnectionException;
 import redis.clients.jedis.exceptions.JedisException;
+import redis.clients.jedis.exceptions.JedisMovedDataException;
+import redis.clients.util.Pool;
+import redis.clients.util.SafeEncoder;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.Spliterator;
+import java.util.TreeMap;
+import java.util.Spliterators;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
+@Slf4j
 @Setter
 public class RedisServiceImpl implements RedisService {
 
@@ -23,126 +54,624 @@ public class RedisServiceImpl implements RedisService {
     private RedisTemplate<String, Object> redisTemplate;
     
     /**
-     * direct based on jedis
+     * direct based on jedis,按键名路由到所在节点
      */
-    private JedisPool jedisPool;
+    private RedisNodeRouter router;
 
     /**
-     * 金惠家REDIS对象统一前缀
+     * 跨节点批量操作时并行执行各节点的管道,为null时依次执行
      */
-    private static final String JHJ_REDIS_KEY_PREFIX = "jhj_";
+    private Executor batchExecutor;
+
+    /**
+     * 键名命名空间,默认为统一前缀jhj_
+     */
+    private RedisKeyNamespace keyNamespace = PrefixKeyNamespace.DEFAULT;
+
+    /**
+     * 分布式锁键名前缀
+     */
+    private static final String LOCK_KEY_PREFIX = "distributed_lock_";
+
+    /**
+     * 合并跨节点加载所用的锁名前缀
+     */
+    private static final String LOAD_LOCK_PREFIX = "load_";
+
+    /**
+     * 限流器键名前缀
+     */
+    private static final String RATE_LIMIT_KEY_PREFIX = "rate_limit_";
+
+    /**
+     * 可靠队列键名前缀
+     */
+    private static final String QUEUE_KEY_PREFIX = "queue_";
+
+    /**
+     * 布隆过滤器键名前缀
+     */
+    private static final String BLOOM_KEY_PREFIX = "bloom_";
+
+    /**
+     * 记录加载耗时的附属键后缀
+     */
+    private static final String LOAD_DELTA_SUFFIX = ":load_delta";
+
+    /**
+     * 获取锁失败后的最短及最长退避时间,单位为毫秒
+     */
+    private static final long MIN_LOCK_BACKOFF_MILLIS = 10;
+
+    private static final long MAX_LOCK_BACKOFF_MILLIS = 500;
+
+    /**
+     * HSET并设置过期时间,ARGV[3]小于等于0时不设置过期时间
+     */
+    static final RedisLuaScript HASH_PUT_SCRIPT = new RedisLuaScript(
+            "local n = redis.call('hset', KEYS[1], ARGV[1], ARGV[2]) "
+                    + "if tonumber(ARGV[3]) > 0 then redis.call('expire', KEYS[1], ARGV[3]) end "
+                    + "return n");
+
+    /**
+     * LPUSH并设置过期时间,返回列表长度
+     */
+    static final RedisLuaScript LEFT_PUSH_SCRIPT = new RedisLuaScript(
+            "local len = redis.call('lpush', KEYS[1], ARGV[1]) "
+                    + "if tonumber(ARGV[2]) > 0 then redis.call('expire', KEYS[1], ARGV[2]) end "
+                    + "return len");
+
+    /**
+     * 以HMSET写入ARGV[2]对字段,HDEL其后的字段,ARGV[1]大于0时设置过期时间
+     */
+    static final RedisLuaScript HASH_PUT_OBJECT_SCRIPT = new RedisLuaScript(
+            "local n = tonumber(ARGV[2]) "
+                    + "if n > 0 then redis.call('hmset', KEYS[1], unpack(ARGV, 3, 2 + n * 2)) end "
+                    + "if #ARGV > 2 + n * 2 then redis.call('hdel', KEYS[1], unpack(ARGV, 3 + n * 2)) end "
+                    + "if tonumber(ARGV[1]) > 0 then redis.call('expire', KEYS[1], ARGV[1]) end "
+                    + "return n");
+
+    /**
+     * 分批PFADD并设置过期时间,ARGV[1]小于等于0时不设置过期时间,返回基数估算是否变化
+     */
+    static final RedisLuaScript HLL_ADD_SCRIPT = new RedisLuaScript(
+            "local changed = 0 "
+                    + "for i = 2, #ARGV, 1000 do "
+                    + "if redis.call('pfadd', KEYS[1], unpack(ARGV, i, math.min(i + 999, #ARGV))) == 1 then changed = 1 end end "
+                    + "if tonumber(ARGV[1]) > 0 then redis.call('expire', KEYS[1], ARGV[1]) end "
+                    + "return changed");
+
+    /**
+     * 单个管道最多包含的命令数
+     */
+    private int pipelineBatchSize = 500;
+
+    /**
+     * SCAN命令的COUNT提示
+     */
+    private int scanCount = 1000;
+
+    /**
+     * 对象值的序列化实现
+     */
+    private RedisValueSerializer valueSerializer;
+
+    /**
+     * 锁释放通知,为null时获取锁仅按退避时间重试
+     */
+    private RedisLockNotifier lockNotifier;
+
+    /**
+     * 锁释放通知频道
+     */
+    private String lockChannel;
+
+    /**
+     * Lua脚本注册表,脚本通过EVALSHA调用
+     */
+    private RedisScriptRegistry scriptRegistry;
+
+    /**
+     * 可重入锁的续期看门狗
+     */
+    private RedisLockWatchdog lockWatchdog;
+
+    /**
+     * 本地近端缓存,为null时不启用
+     */
+    private RedisNearCache nearCache;
+
+    /**
+     * 近端缓存跨节点淘汰通知频道
+     */
+    private String nearCacheChannel;
+
+    /**
+     * 热点键探测,热点键由本地短TTL副本提供读取,为null时不启用
+     */
+    private RedisHotKeyDetector hotKeyDetector;
+
+    /**
+     * 正在加载的键,同一进程内的并发未命中共享同一次加载.结果为写入Redis的字节,各调用方按自己的类型解码
+     */
+    private final ConcurrentMap<String, CompletableFuture<byte[]>> loading = new ConcurrentHashMap<>();
+
+    /**
+     * 等待其他节点完成加载的最长时间,单位为毫秒.超时后自行加载
+     */
+    private long loadWaitMillis = 3000;
+
+    /**
+     * 加载锁的过期时间,单位为秒
+     */
+    private int loadLockTimeout = 10;
+
+    /**
+     * 提前刷新系数(XFetch中的beta),越大越早刷新.小于等于0时不提前刷新
+     */
+    private double earlyRefreshBeta = 0;
+
+    /**
+     * 可靠队列的可见性超时时间,单位为毫秒
+     */
+    private long queueVisibilityTimeoutMillis = 30000;
+
+    /**
+     * 可靠队列为空时单次阻塞等待的时间,单位为秒
+     */
+    private int queueBlockTimeout = 5;
+
+    /**
+     * 可靠队列消费者默认使用的线程池
+     */
+    private Executor queueExecutor;
+
+    /**
+     * 每个节点连接池的最大连接数,可靠队列据此拒绝会占满连接池的消费者个数,小于等于0时不校验
+     */
+    private int poolMaxTotal;
+
+    /**
+     * 服务端是否加载了RedisBloom,由首个布隆过滤器探测后全部过滤器共享
+     */
+    private final AtomicReference<Boolean> bloomModuleAvailable = new AtomicReference<>();
 
     @Override
     public Set<String> getKeys(String keyPattern) {
         if (CommonValidateUtil.isEmpty(keyPattern)) {
             return null;
         }
-        return redisTemplate.keys(JHJ_REDIS_KEY_PREFIX + keyPattern);
+        Set<String> keys = new HashSet<>();
+        Iterator<String> iterator = scanIterator(keyNamespace.pattern(keyPattern));
+        while (iterator.hasNext()) {
+            keys.add(iterator.next());
+        }
+        return keys;
+    }
+
+    @Override
+    public Stream<String> scanKeys(String keyPattern) {
+        if (CommonValidateUtil.isEmpty(keyPattern)) {
+            return Stream.empty();
+        }
+        Iterator<String> iterator = scanIterator(keyNamespace.pattern(keyPattern));
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.NONNULL), false);
+    }
+
+    @Override
+    public void scanKeys(String keyPattern, int batchSize, Consumer<List<String>> callback) {
+        if (CommonValidateUtil.isEmpty(keyPattern)) {
+            return;
+        }
+        Iterator<String> iterator = scanIterator(keyNamespace.pattern(keyPattern));
+        List<String> batch = new ArrayList<>(batchSize);
+        while (iterator.hasNext()) {
+            batch.add(iterator.next());
+            if (batch.size() >= batchSize) {
+                callback.accept(batch);
+                batch = new ArrayList<>(batchSize);
+            }
+        }
+        if (!batch.isEmpty()) {
+            callback.accept(batch);
+        }
     }
 
     @Override
     public void put(String key, String value, int expire) {
-        redisTemplate.opsForValue().set(JHJ_REDIS_KEY_PREFIX + key, value);
-        redisTemplate.expire(JHJ_REDIS_KEY_PREFIX + key, expire, TimeUnit.SECONDS);
+        if (expire > 0) {
+            // SET key value EX expire,写入与过期时间在同一条命令中完成
+            redisTemplate.opsForValue().set(keyNamespace.key(key), value, expire, TimeUnit.SECONDS);
+        } else {
+            redisTemplate.opsForValue().set(keyNamespace.key(key), value);
+        }
+        evictNearCache(key);
+    }
+
+    @Override
+    public void put(String key, Object value, int expire) {
+        byte[] redisKey = keyNamespace.keyBytes(key);
+        byte[] bytes = valueSerializer.serialize(value);
+        execute(redisKey, false, jedis -> expire > 0 ? jedis.setex(redisKey, expire, bytes) : jedis.set(redisKey, bytes));
+        evictNearCache(key);
     }
 
     @Override
     public void persist(String key, String value) {
-        redisTemplate.opsForValue().set(JHJ_REDIS_KEY_PREFIX + key, value);
+        redisTemplate.opsForValue().set(keyNamespace.key(key), value);
+        evictNearCache(key);
     }
 
     @Override
     public Object get(String key) {
-        return redisTemplate.opsForValue().get(JHJ_REDIS_KEY_PREFIX + key);
+        RedisNearCache cache = localCache(key);
+        String redisKey = keyNamespace.key(key);
+        if (cache == null) {
+            return execute(redisKey, true, jedis -> jedis.get(redisKey));
+        }
+        RedisNearCache.Entry entry = cache.get(key);
+        if (entry != null) {
+            return entry.getValue();
+        }
+        long version = cache.version(key);
+        // 值与剩余TTL在一次往返中取回,本地缓存时间不超过Redis中的TTL.
+        // 只从主节点填充,避免把滞后副本上的旧值缓存到TTL结束
+        return execute(redisKey, false, jedis -> {
+            Pipeline pipeline = jedis.pipelined();
+            Response<String> value = pipeline.get(redisKey);
+            Response<Long> ttl = pipeline.pttl(redisKey);
+            pipeline.sync();
+            cache.put(key, value.get(), ttl.get(), version);
+            return value.get();
+        });
+    }
+
+    @Override
+    public <T> T get(String key, Class<T> type) {
+        byte[] redisKey = keyNamespace.keyBytes(key);
+        byte[] bytes = execute(redisKey, true, jedis -> jedis.get(redisKey));
+        return bytes == null ? null : valueSerializer.deserialize(bytes, type);
+    }
+
+    @Override
+    public String getOrLoad(String key, int expire, Supplier<String> loader) {
+        return getOrLoad(key, expire, loader, SafeEncoder::encode, SafeEncoder::encode);
+    }
+
+    @Override
+    public <T> T getOrLoad(String key, int expire, Class<T> type, Supplier<T> loader) {
+        return getOrLoad(key, expire, loader, valueSerializer::serialize, bytes -> valueSerializer.deserialize(bytes, type));
+    }
+
+    private <T> T getOrLoad(String key, int expire, Supplier<T> loader, Function<T, byte[]> encoder, Function<byte[], T> decoder) {
+        String redisKey = keyNamespace.key(key);
+        CachedValue cached = readCached(redisKey, true);
+        if (cached.value == null) {
+            return load(key, expire, loader, encoder, decoder, null);
+        }
+        if (!cached.shouldRefreshEarly(earlyRefreshBeta)) {
+            return decoder.apply(cached.value);
+        }
+        return load(key, expire, loader, encoder, decoder, cached.value);
+    }
+
+    /**
+     * 进程内合并同一个键的并发加载
+     * @param stale 提前刷新时的当前值,已有其他线程或节点在刷新、或加载失败时返回该值;未命中时为null
+     */
+    private <T> T load(String key, int expire, Supplier<T> loader, Function<T, byte[]> encoder, Function<byte[], T> decoder, byte[] stale) {
+        CompletableFuture<byte[]> flight = new CompletableFuture<>();
+        CompletableFuture<byte[]> existing = loading.putIfAbsent(key, flight);
+        if (existing != null) {
+            if (stale != null) {
+                return decoder.apply(stale);
+            }
+            // 共享的加载可能来自其他类型的调用,按本次调用的类型重新解码
+            byte[] bytes = await(existing);
+            return bytes == null ? null : decoder.apply(bytes);
+        }
+        try {
+            return loadAcrossNodes(key, expire, loader, encoder, decoder, stale, flight);
+        } catch (RuntimeException e) {
+            flight.completeExceptionally(e);
+            if (stale != null) {
+                log.warn("early refresh of redis key [{}] failed, serving current value", key, e);
+                return decoder.apply(stale);
+            }
+            throw e;
+        } finally {
+            loading.remove(key, flight);
+        }
+    }
+
+    /**
+     * 跨节点通过分布式锁合并加载:持有锁的节点加载并写入,其他节点在锁释放时被唤醒后直接读取结果
+     * @param flight 以结果的字节完成,供进程内等待同一次加载的调用方解码
+     */
+    private <T> T loadAcrossNodes(String key, int expire, Supplier<T> loader, Function<T, byte[]> encoder, Function<byte[], T> decoder,
+                                  byte[] stale, CompletableFuture<byte[]> flight) {
+        String redisKey = keyNamespace.key(key);
+        String lockName = LOAD_LOCK_PREFIX + key;
+        // 提前刷新不等待,其他节点正在刷新时使用当前值
+        String identifier = acquireLock(lockName, stale != null ? 0 : loadWaitMillis, loadLockTimeout);
+        if (identifier == null) {
+            if (stale != null) {
+                flight.complete(stale);
+                return decoder.apply(stale);
+            }
+            // 等待超时:其他节点加载过慢或已异常退出,不再等待,自行加载
+            CachedValue cached = readCached(redisKey, false);
+            if (cached.value != null) {
+                flight.complete(cached.value);
+                return decoder.apply(cached.value);
+            }
+            return loadAndStore(key, expire, loader, encoder, flight);
+        }
+        try {
+            if (stale == null) {
+                // 等待锁期间其他节点可能已完成加载,从主节点确认
+                CachedValue cached = readCached(redisKey, false);
+                if (cached.value != null) {
+                    flight.complete(cached.value);
+                    return decoder.apply(cached.value);
+                }
+            }
+            return loadAndStore(key, expire, loader, encoder, flight);
+        } finally {
+            releaseLock(lockName, identifier);
+        }
+    }
+
+    private <T> T loadAndStore(String key, int expire, Supplier<T> loader, Function<T, byte[]> encoder, CompletableFuture<byte[]> flight) {
+        long start = System.currentTimeMillis();
+        T value = loader.get();
+        long delta = System.currentTimeMillis() - start;
+        if (value == null) {
+            flight.complete(null);
+            return null;
+        }
+        String redisKey = keyNamespace.key(key);
+        byte[] bytes = encoder.apply(value);
+        String deltaKey = earlyRefreshBeta > 0 && expire > 0 ? loadDeltaKey(redisKey) : null;
+        execute(redisKey, false, jedis -> {
+            Pipeline pipeline = jedis.pipelined();
+            Response<String> stored = expire > 0
+                    ? pipeline.setex(SafeEncoder.encode(redisKey), expire, bytes)
+                    : pipeline.set(SafeEncoder.encode(redisKey), bytes);
+            Response<String> deltaStored = deltaKey != null ? pipeline.setex(deltaKey, expire, String.valueOf(delta)) : null;
+            pipeline.sync();
+            stored.get();
+            if (deltaStored != null) {
+                deltaStored.get();
+            }
+            return null;
+        });
+        evictNearCache(key);
+        flight.complete(bytes);
+        return value;
+    }
+
+    /**
+     * 在一次往返中读取键值;启用提前刷新时同时读取剩余TTL及上次加载耗时
+     */
+    private CachedValue readCached(String redisKey, boolean readOnly) {
+        String deltaKey = earlyRefreshBeta > 0 ? loadDeltaKey(redisKey) : null;
+        return execute(redisKey, readOnly, jedis -> {
+            Pipeline pipeline = jedis.pipelined();
+            Response<byte[]> value = pipeline.get(SafeEncoder.encode(redisKey));
+            Response<Long> ttl = deltaKey != null ? pipeline.pttl(redisKey) : null;
+            Response<String> delta = deltaKey != null ? pipeline.get(deltaKey) : null;
+            pipeline.sync();
+            CachedValue cached = new CachedValue();
+            cached.value = value.get();
+            if (deltaKey != null) {
+                cached.ttlMillis = ttl.get();
+                cached.deltaMillis = delta.get() != null ? Long.parseLong(delta.get()) : 0;
+            }
+            return cached;
+        });
+    }
+
+    /**
+     * 记录加载耗时的附属键,与主键位于同一个槽,以便在同一个管道中读写.
+     * 键名含有无效的hash tag时无法保证同槽,返回null,该键不提前刷新
+     */
+    private static String loadDeltaKey(String redisKey) {
+        int open = redisKey.indexOf('{');
+        if (open < 0) {
+            return redisKey.indexOf('}') < 0 ? "{" + redisKey + "}" + LOAD_DELTA_SUFFIX : null;
+        }
+        int close = redisKey.indexOf('}', open + 1);
+        return close > open + 1 ? redisKey + LOAD_DELTA_SUFFIX : null;
+    }
+
+    private static byte[] await(CompletableFuture<byte[]> flight) {
+        try {
+            return flight.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new RuntimeException(e.getCause());
+        }
     }
 
     @Override
     public void delete(String key) {
-        redisTemplate.delete(JHJ_REDIS_KEY_PREFIX + key);
+        redisTemplate.delete(keyNamespace.key(key));
+        evictNearCache(key);
     }
     
     @Override
     public boolean keyExists(String key) {
-        return redisTemplate.hasKey(JHJ_REDIS_KEY_PREFIX + key);
+        return redisTemplate.hasKey(keyNamespace.key(key));
     }
     
     @Override
     public long stringIncr(String key, long incrNum) {
-        return redisTemplate.opsForValue().increment(JHJ_REDIS_KEY_PREFIX + key, incrNum);
+        long value = redisTemplate.opsForValue().increment(keyNamespace.key(key), incrNum);
+        evictNearCache(key);
+        return value;
     }
 
     @Override
     public void hashPut(String key, String field, String value, int expire) {
-        redisTemplate.opsForHash().put(JHJ_REDIS_KEY_PREFIX + key, field, value);
-        redisTemplate.expire(JHJ_REDIS_KEY_PREFIX + key, expire, TimeUnit.SECONDS);
+        scriptRegistry.eval(HASH_PUT_SCRIPT, Collections.singletonList(keyNamespace.key(key)),
+                Arrays.asList(field, value, String.valueOf(expire)));
+        evictNearCache(key);
     }
 
     @Override
     public Object hashGet(String key, String field) {
-        return redisTemplate.opsForHash().get(JHJ_REDIS_KEY_PREFIX + key, field);
+        RedisNearCache cache = localCache(key);
+        String redisKey = keyNamespace.key(key);
+        if (cache == null) {
+            return execute(redisKey, true, jedis -> jedis.hget(redisKey, field));
+        }
+        RedisNearCache.Entry entry = cache.hashGet(key, field);
+        if (entry != null) {
+            return entry.getValue();
+        }
+        long version = cache.version(key);
+        // 只从主节点填充,同get
+        return execute(redisKey, false, jedis -> {
+            Pipeline pipeline = jedis.pipelined();
+            Response<String> value = pipeline.hget(redisKey, field);
+            Response<Long> ttl = pipeline.pttl(redisKey);
+            pipeline.sync();
+            cache.hashPut(key, field, value.get(), ttl.get(), version);
+            return value.get();
+        });
     }
 
     @Override
     public Map<String, String> hashGetAll(String key) {
-        Jedis jedis = jedisPool.getResource();
-        try {
-            return jedis.hgetAll(JHJ_REDIS_KEY_PREFIX + key);
-        } finally {
-            jedis.close();
-        }
+        String redisKey = keyNamespace.key(key);
+        return execute(redisKey, true, jedis -> jedis.hgetAll(redisKey));
     }
 
     @Override
     public void hashPutAll(String key, Map<String, String> values) {
-        Jedis jedis = jedisPool.getResource();
-        try {
-            jedis.hmset(JHJ_REDIS_KEY_PREFIX + key, values);
-        } finally {
-            jedis.close();
+        String redisKey = keyNamespace.key(key);
+        execute(redisKey, false, jedis -> jedis.hmset(redisKey, values));
+        evictNearCache(key);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void hashPutObject(String key, Object value, int expire) {
+        RedisHashMapper<Object> mapper = (RedisHashMapper<Object>) RedisHashMapper.of(value.getClass());
+        Map<String, String> values = new LinkedHashMap<>();
+        List<String> nulls = new ArrayList<>();
+        mapper.toHash(value, values, nulls);
+        hashPutObject(key, values, nulls, expire);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void hashPutObjectFields(String key, Object value, String... fields) {
+        RedisHashMapper<Object> mapper = (RedisHashMapper<Object>) RedisHashMapper.of(value.getClass());
+        Map<String, String> values = new LinkedHashMap<>();
+        List<String> nulls = new ArrayList<>();
+        mapper.toHash(value, fields, values, nulls);
+        hashPutObject(key, values, nulls, 0);
+    }
+
+    @Override
+    public <T> T hashGetObject(String key, Class<T> type) {
+        RedisHashMapper<T> mapper = RedisHashMapper.of(type);
+        String redisKey = keyNamespace.key(key);
+        return mapper.fromHash(execute(redisKey, true, jedis -> jedis.hgetAll(redisKey)));
+    }
+
+    @Override
+    public <T> T hashGetObject(String key, Class<T> type, String... fields) {
+        RedisHashMapper<T> mapper = RedisHashMapper.of(type);
+        mapper.checkFields(fields);
+        if (fields.length == 0) {
+            return null;
         }
+        String redisKey = keyNamespace.key(key);
+        return mapper.fromValues(fields, execute(redisKey, true, jedis -> jedis.hmget(redisKey, fields)));
     }
 
     @Override
     public long createOrUpdateListByLeftPush(String key, String value, int expire) {
-        long len = redisTemplate.opsForList().leftPush(JHJ_REDIS_KEY_PREFIX + key, value);
-        if (expire > 0)
-            redisTemplate.expire(JHJ_REDIS_KEY_PREFIX + key, expire, TimeUnit.SECONDS);
-        return len;
+        return (Long) scriptRegistry.eval(LEFT_PUSH_SCRIPT, Collections.singletonList(keyNamespace.key(key)),
+                Arrays.asList(value, String.valueOf(expire)));
     }
 
     @Override
     public List<Object> getList(String key, long startIndex, long endIndex) {
-        return redisTemplate.opsForList().range(JHJ_REDIS_KEY_PREFIX + key, startIndex, endIndex);
+        String redisKey = keyNamespace.key(key);
+        return new ArrayList<>(execute(redisKey, true, jedis -> jedis.lrange(redisKey, startIndex, endIndex)));
     }
     
     @Override
     public long getListLength(String key) {
-        return redisTemplate.opsForList().size(JHJ_REDIS_KEY_PREFIX + key);
+        String redisKey = keyNamespace.key(key);
+        return execute(redisKey, true, jedis -> jedis.llen(redisKey));
     }
 
     @Override
     public void listElementPut(String key, long index, String value) {
-        redisTemplate.opsForList().set(JHJ_REDIS_KEY_PREFIX + key, index, value);
+        redisTemplate.opsForList().set(keyNamespace.key(key), index, value);
     }
 
     @Override
 	public Object listRightPop(String key) {
-		return redisTemplate.opsForList().rightPop(JHJ_REDIS_KEY_PREFIX + key);
+		return redisTemplate.opsForList().rightPop(keyNamespace.key(key));
 	}
     
     @Override
 	public Object listRightPopAndLeftPush(String sourceKey, String destinationKey) {
-    	return redisTemplate.opsForList().rightPopAndLeftPush(JHJ_REDIS_KEY_PREFIX + sourceKey, JHJ_REDIS_KEY_PREFIX + destinationKey);
+    	return redisTemplate.opsForList().rightPopAndLeftPush(keyNamespace.key(sourceKey), keyNamespace.key(destinationKey));
 	}
     
     @Override
     public boolean setTTL(String key, int expire) {
-        return redisTemplate.expire(JHJ_REDIS_KEY_PREFIX + key, expire, TimeUnit.SECONDS);
+        return redisTemplate.expire(keyNamespace.key(key), expire, TimeUnit.SECONDS);
     }
 
     @Override
     public Long getTTL(String key, TimeUnit timeUnit) {
-        return redisTemplate.getExpire(JHJ_REDIS_KEY_PREFIX + key, timeUnit);
+        return redisTemplate.getExpire(keyNamespace.key(key), timeUnit);
+    }
+
+    @Override
+    public boolean hyperLogLogAdd(String key, List<String> values, int expire) {
+        if (values.isEmpty()) {
+            return false;
+        }
+        List<String> args = new ArrayList<>(values.size() + 1);
+        args.add(String.valueOf(expire));
+        args.addAll(values);
+        return (Long) scriptRegistry.eval(HLL_ADD_SCRIPT, Collections.singletonList(keyNamespace.key(key)), args) == 1L;
+    }
+
+    @Override
+    public long hyperLogLogCount(String key) {
+        String redisKey = keyNamespace.key(key);
+        return execute(redisKey, false, jedis -> jedis.pfcount(redisKey));
+    }
+
+    @Override
+    public long hyperLogLogCount(List<String> keys) {
+        if (keys.isEmpty()) {
+            return 0;
+        }
+        String[] redisKeys = redisKeys(keys).toArray(new String[0]);
+        return execute(redisKeys[0], false, jedis -> jedis.pfcount(redisKeys));
+    }
+
+    @Override
+    public void hyperLogLogMerge(String destinationKey, List<String> sourceKeys) {
+        String redisKey = keyNamespace.key(destinationKey);
+        String[] sourceRedisKeys = redisKeys(sourceKeys).toArray(new String[0]);
+        execute(redisKey, false, jedis -> jedis.pfmerge(redisKey, sourceRedisKeys));
     }
 
     /**
@@ -154,74 +683,457 @@ public class RedisServiceImpl implements RedisService {
      */
     @Override
 	public String tryLock(String lockName, long acquireTimeout, long keyTimeout) {
+		return acquireLock(lockName, acquireTimeout * 1000, keyTimeout);
+	}
+	
+	/**
+	 * 尝试获得锁
+	 * @param lockName             锁名
+	 * @param acquireTimeoutMillis 单位为毫秒
+	 * @param keyTimeout           单位为秒
+	 * @return identifier,获取失败时返回null
+	 */
+	String acquireLock(String lockName, long acquireTimeoutMillis, long keyTimeout) {
+		
+		// 随机生成一个标识符
+		String identifier = UUID.randomUUID().toString();
+		// 锁名
+		String lockKey = LOCK_KEY_PREFIX + lockName;
+		
+		if (keyTimeout < 1) {
+			// 锁持有的最长时间,默认1秒
+			keyTimeout = 1;
+		}
+		int lockSeconds = (int) keyTimeout;
 		
-		Jedis jedisConn = null;
 		try {
-			// 获取连接
-			jedisConn = jedisPool.getResource();
-			// 随机生成一个标识符
-			String identifier = UUID.randomUUID().toString();
-			// 锁名
-			String lockKey = "distributed_lock_" + lockName;
-			
-			if (keyTimeout < 1) {
-				// 锁持有的最长时间,默认1秒
-				keyTimeout = 1;
+			if (acquire(lockKey, identifier, lockSeconds)) {
+				return identifier;
 			}
 			
 			// 尝试获取锁的超时时间,超过这个时间则放弃获取锁的动作
-			long acquireThreshold = System.currentTimeMillis() + (acquireTimeout * 1000);
-			while (System.currentTimeMillis() < acquireThreshold) {
-				String result = jedisConn.set(lockKey, identifier, "NX", "EX", keyTimeout);
-				// 获取锁成功
-		        if ("OK".equals(result)) {
-		            return identifier;
-		        }
-	
-				try {
-					Thread.sleep(10);
-				} catch (InterruptedException e) {
-					Thread.currentThread().interrupt();
+			long acquireThreshold = System.currentTimeMillis() + acquireTimeoutMillis;
+			// 未配置通知时,退化为仅按退避时间重试
+			RedisLockNotifier.Signal signal = lockNotifier != null ? lockNotifier.register(lockName) : new RedisLockNotifier.Signal();
+			try {
+				long backoff = MIN_LOCK_BACKOFF_MILLIS;
+				while (true) {
+					// 先读代数再尝试,避免两者之间发生的释放通知被错过
+					long generation = signal.generation();
+					if (acquire(lockKey, identifier, lockSeconds)) {
+						return identifier;
+					}
+					long remaining = acquireThreshold - System.currentTimeMillis();
+					if (remaining <= 0) {
+						return null;
+					}
+					// 等待释放通知,最长等待带随机抖动的退避时间
+					long jittered = ThreadLocalRandom.current().nextLong(backoff / 2, backoff + 1);
+					signal.await(generation, Math.min(remaining, jittered));
+					backoff = Math.min(backoff * 2, MAX_LOCK_BACKOFF_MILLIS);
+				}
+			} finally {
+				if (lockNotifier != null) {
+					lockNotifier.unregister(lockName);
 				}
 			}
-		
-		}  catch (JedisException e) {
-            throw new RuntimeException(e);
-        } finally {
-            if (jedisConn != null) {
-            	jedisConn.close();
-            }
-        }
-		
-		return null;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return null;
+		} catch (JedisException e) {
+			throw new RuntimeException(e);
+		}
+	}
+	
+	/**
+	 * SET NX EX,每次尝试单独借用连接,等待期间不占用连接池
+	 */
+	private boolean acquire(String lockKey, String identifier, int lockSeconds) {
+		return execute(lockKey, false, jedis -> "OK".equals(jedis.set(lockKey, identifier, "NX", "EX", lockSeconds)));
 	}
 	
 	private static final Long RELEASE_SUCCESS = 1L;
 	
+	/**
+	 * 标识符匹配时延长锁的过期时间.以字符串返回,便于在管道中读取结果
+	 */
+	private static final RedisLuaScript RENEW_LOCK_SCRIPT = new RedisLuaScript("if redis.call('get', KEYS[1]) == ARGV[1] then "
+			+ "redis.call('pexpire', KEYS[1], ARGV[2]) return '1' "
+			+ "else return '0' end");
+	
+	/**
+	 * 标识符匹配时删除锁,并发布锁名唤醒等待者
+	 */
+	private static final RedisLuaScript RELEASE_LOCK_SCRIPT = new RedisLuaScript("if redis.call('get', KEYS[1]) == ARGV[1] then "
+			+ "redis.call('del', KEYS[1]) redis.call('publish', ARGV[2], ARGV[3]) return 1 "
+			+ "else return 0 end");
+	
     @Override
 	public boolean releaseLock(String lockName, String identifier) {
 		
-		Jedis jedisConn = null;
-		
-        String lockKey = "distributed_lock_" + lockName;
-        boolean flag = false;
+        String lockKey = LOCK_KEY_PREFIX + lockName;
         try {
-        	jedisConn = jedisPool.getResource();
-        	
-        	String script = "if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('del', KEYS[1]) else return 0 end";
-            Object result = jedisConn.eval(script, Collections.singletonList(lockKey), Collections.singletonList(identifier));
-            
-            if (RELEASE_SUCCESS.equals(result)) {
-                return true;
-            }
+            Object result = scriptRegistry.eval(RELEASE_LOCK_SCRIPT, Collections.singletonList(lockKey),
+                    Arrays.asList(identifier, lockChannel, lockName));
+            return RELEASE_SUCCESS.equals(result);
         } catch (JedisException e) {
         	throw new RuntimeException(e);
-        } finally {
-            if (jedisConn != null) {
-            	jedisConn.close();
+        }
+    }
+
+    @Override
+    public RedisLock getLock(String lockName) {
+        return new RedisLock(this, lockWatchdog, lockName);
+    }
+
+    @Override
+    public RedisReliableQueue getQueue(String name) {
+        // hash tag使队列的各个键位于同一个槽
+        return new RedisReliableQueue(router, scriptRegistry, keyNamespace.key(QUEUE_KEY_PREFIX + "{" + name + "}"),
+                queueVisibilityTimeoutMillis, queueBlockTimeout, queueExecutor, poolMaxTotal);
+    }
+
+    @Override
+    public RedisRateLimiter getRateLimiter(String name, RedisRateLimiter.Algorithm algorithm, long permits, long period, TimeUnit unit) {
+        return new RedisRateLimiter(scriptRegistry, keyNamespace.key(RATE_LIMIT_KEY_PREFIX + name), algorithm, permits, unit.toMillis(period));
+    }
+
+    @Override
+    public RedisBloomFilter getBloomFilter(String name, long expectedInsertions, double falsePositiveProbability, int expire) {
+        return new RedisBloomFilter(scriptRegistry, keyNamespace.key(BLOOM_KEY_PREFIX + name), expectedInsertions,
+                falsePositiveProbability, expire, bloomModuleAvailable);
+    }
+
+    /**
+     * 在管道中批量续期锁,仅当锁仍属于对应标识符时延长过期时间
+     * @param lockNames
+     * @param locks       与lockNames一一对应
+     * @param leaseMillis 新的过期时间,单位为毫秒
+     * @return 续期成功为true,锁已不属于该标识符为false
+     */
+    BatchResult<Boolean> renewLocks(List<String> lockNames, List<RedisLockWatchdog.HeldLock> locks, long leaseMillis) {
+        return renewLocks(lockNames, locks, leaseMillis, true);
+    }
+
+    private BatchResult<Boolean> renewLocks(List<String> lockNames, List<RedisLockWatchdog.HeldLock> locks, long leaseMillis, boolean retryOnNoScript) {
+        List<Integer> indexes = new ArrayList<>(lockNames.size());
+        for (int i = 0; i < lockNames.size(); i++) {
+            indexes.add(i);
+        }
+        String lease = String.valueOf(leaseMillis);
+        BatchResult<Boolean> result = pipelined(indexes, i -> LOCK_KEY_PREFIX + lockNames.get(i), false, (pipeline, i) -> scriptRegistry.evalsha(pipeline, RENEW_LOCK_SCRIPT,
+                Collections.singletonList(LOCK_KEY_PREFIX + lockNames.get(i)),
+                Arrays.asList(locks.get(i).identifier, lease)), "1"::equals);
+        // 服务端缺少脚本时加载后整批重试一次,续期脚本可重复执行
+        for (Exception e : result.getErrors().values()) {
+            if (retryOnNoScript && scriptRegistry.isNoScript(e)) {
+                scriptRegistry.load(RENEW_LOCK_SCRIPT);
+                return renewLocks(lockNames, locks, leaseMillis, false);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 使用单个连接池,等同于单机模式的路由
+     * @param jedisPool
+     */
+    public void setJedisPool(Pool<Jedis> jedisPool) {
+        this.router = new PooledNodeRouter(jedisPool);
+    }
+
+    /**
+     * 停止锁续期及批量操作线程池
+     */
+    public void destroy() {
+        if (lockWatchdog != null) {
+            lockWatchdog.destroy();
+        }
+        if (batchExecutor instanceof ExecutorConfigurationSupport) {
+            ((ExecutorConfigurationSupport) batchExecutor).shutdown();
+        }
+    }
+
+    @Override
+    public BatchResult<String> multiGet(List<String> keys) {
+        return pipelined(redisKeys(keys), Function.identity(), true, Pipeline::get, Function.identity());
+    }
+
+    @Override
+    public BatchResult<Boolean> multiPut(List<RedisEntry> entries) {
+        List<String> redisKeys = new ArrayList<>(entries.size());
+        List<Integer> indexes = new ArrayList<>(entries.size());
+        for (int i = 0; i < entries.size(); i++) {
+            redisKeys.add(keyNamespace.key(entries.get(i).getKey()));
+            indexes.add(i);
+        }
+        BatchResult<Boolean> result = pipelined(indexes, redisKeys::get, false, (pipeline, i) -> entries.get(i).getExpire() > 0
+                ? pipeline.setex(redisKeys.get(i), entries.get(i).getExpire(), entries.get(i).getValue())
+                : pipeline.set(redisKeys.get(i), entries.get(i).getValue()), "OK"::equals);
+        for (RedisEntry entry : entries) {
+            evictNearCache(entry.getKey());
+        }
+        return result;
+    }
+
+    @Override
+    public BatchResult<Boolean> multiPut(Map<String, String> values, int expire) {
+        List<RedisEntry> entries = new ArrayList<>(values.size());
+        for (Map.Entry<String, String> entry : values.entrySet()) {
+            entries.add(new RedisEntry(entry.getKey(), entry.getValue(), expire));
+        }
+        return multiPut(entries);
+    }
+
+    @Override
+    public BatchResult<String> multiHashGet(List<String> keys, String field) {
+        return pipelined(redisKeys(keys), Function.identity(), true, (pipeline, redisKey) -> pipeline.hget(redisKey, field), Function.identity());
+    }
+
+    @Override
+    public BatchResult<Map<String, String>> multiHashGetAll(List<String> keys) {
+        return pipelined(redisKeys(keys), Function.identity(), true, Pipeline::hgetAll, Function.identity());
+    }
+
+    @Override
+    public BatchResult<Boolean> multiDelete(List<String> keys) {
+        BatchResult<Boolean> result = pipelined(redisKeys(keys), Function.identity(), false, Pipeline::del, deleted -> deleted != null && deleted > 0);
+        for (String key : keys) {
+            evictNearCache(key);
+        }
+        return result;
+    }
+
+    /**
+     * 按字段写入对象,值为null的字段删除,与设置过期时间在一个脚本中完成
+     */
+    private void hashPutObject(String key, Map<String, String> values, List<String> nulls, int expire) {
+        List<String> args = new ArrayList<>(values.size() * 2 + nulls.size() + 2);
+        args.add(String.valueOf(expire));
+        args.add(String.valueOf(values.size()));
+        for (Map.Entry<String, String> entry : values.entrySet()) {
+            args.add(entry.getKey());
+            args.add(entry.getValue());
+        }
+        args.addAll(nulls);
+        scriptRegistry.eval(HASH_PUT_OBJECT_SCRIPT, Collections.singletonList(keyNamespace.key(key)), args);
+        evictNearCache(key);
+    }
+
+    /**
+     * 业务键名逐个转换为完整键名
+     */
+    private List<String> redisKeys(List<String> keys) {
+        List<String> redisKeys = new ArrayList<>(keys.size());
+        for (String key : keys) {
+            redisKeys.add(keyNamespace.key(key));
+        }
+        return redisKeys;
+    }
+
+    /**
+     * 读取时使用的本地缓存:匹配近端缓存前缀的键使用近端缓存,热点键使用本地副本
+     * @param key 不含统一前缀的键名
+     * @return 不使用本地缓存时返回null
+     */
+    private RedisNearCache localCache(String key) {
+        if (nearCache != null && nearCache.isCacheable(key)) {
+            return nearCache;
+        }
+        if (hotKeyDetector != null && hotKeyDetector.record(key)) {
+            return hotKeyDetector.getLocalCopies();
+        }
+        return null;
+    }
+
+    /**
+     * 写入后淘汰本地缓存,并通知其他节点淘汰.
+     * 热点键副本只在本地淘汰,其他节点的副本在短TTL后过期
+     * @param key 不含统一前缀的键名
+     */
+    private void evictNearCache(String key) {
+        if (hotKeyDetector != null && hotKeyDetector.isHot(key)) {
+            hotKeyDetector.getLocalCopies().evict(key);
+        }
+        if (nearCache != null && nearCache.isCacheable(key)) {
+            nearCache.evict(key);
+            redisTemplate.convertAndSend(nearCacheChannel, key);
+        }
+    }
+
+    /**
+     * 在键所在节点上执行回调
+     * @param redisKey 完整键名
+     * @param readOnly 只读命令可路由到副本
+     * @param callback
+     * @return
+     */
+    private <T> T execute(String redisKey, boolean readOnly, JedisCallback<T> callback) {
+        return router.execute(redisKey, readOnly, callback);
+    }
+
+    /**
+     * 字节键名的命令直接按字节路由,不为路由再构造String
+     * @param redisKey 完整键名的UTF-8编码
+     */
+    private <T> T execute(byte[] redisKey, boolean readOnly, JedisCallback<T> callback) {
+        return router.execute(redisKey, readOnly, callback);
+    }
+
+    private Iterator<String> scanIterator(String pattern) {
+        // 集群模式下逐个主节点遍历
+        List<Iterator<String>> iterators = new ArrayList<>();
+        for (Pool<Jedis> pool : router.masters()) {
+            iterators.add(new ScanIterator(pool, pattern, scanCount));
+        }
+        return Iterators.concat(iterators.iterator());
+    }
+
+    /**
+     * 按键所在节点分组,每组按pipelineBatchSize分段,每段在一个管道中执行
+     * <p>
+     * 多个节点的分组在batchExecutor中并行执行.单条命令的错误只记录在对应位置;
+     * 某一段连接异常时,该段全部记为失败,后续分段继续执行.
+     * 因槽迁移(MOVED/ASK)、副本不可用或主节点不可用(如故障转移)而失败的命令在更新路由后于主节点重试一次
+     *
+     * @param items     输入项
+     * @param keyOf     输入项对应的完整键名
+     * @param readOnly  只读命令可路由到副本
+     * @param command   向管道追加单条命令
+     * @param converter 响应值转换
+     * @return 与输入顺序一致的结果
+     */
+    private <E, R, T> BatchResult<T> pipelined(List<E> items, Function<E, String> keyOf, boolean readOnly,
+                                               BiFunction<Pipeline, E, Response<R>> command, Function<R, T> converter) {
+        BatchResult<T> result = new BatchResult<>(items.size());
+        List<Integer> indexes = new ArrayList<>(items.size());
+        for (int i = 0; i < items.size(); i++) {
+            indexes.add(i);
+        }
+        pipelined(items, indexes, keyOf, readOnly, command, converter, result);
+
+        List<Integer> retries = new ArrayList<>();
+        for (Map.Entry<Integer, Exception> error : new TreeMap<>(result.getErrors()).entrySet()) {
+            Exception e = error.getValue();
+            if (e instanceof JedisMovedDataException) {
+                router.redirect((JedisMovedDataException) e);
+                retries.add(error.getKey());
+            } else if (e instanceof JedisAskDataException) {
+                // ASK只对单条命令有效,逐条跟随
+                E item = items.get(error.getKey());
+                try {
+                    result.set(error.getKey(), converter.apply(execute(keyOf.apply(item), readOnly, jedis -> {
+                        Pipeline pipeline = jedis.pipelined();
+                        Response<R> response = command.apply(pipeline, item);
+                        pipeline.sync();
+                        return response.get();
+                    })));
+                } catch (JedisException retryError) {
+                    result.fail(error.getKey(), retryError);
+                }
+            } else if (e instanceof JedisConnectionException && (readOnly || router.getMaxRedirects() > 0)) {
+                // 连接失败时已更新路由,集群故障转移后重试的命令路由到新的主节点
+                retries.add(error.getKey());
+            }
+        }
+        if (!retries.isEmpty()) {
+            pipelined(items, retries, keyOf, false, command, converter, result);
+        }
+        return result;
+    }
+
+    private <E, R, T> void pipelined(List<E> items, List<Integer> indexes, Function<E, String> keyOf, boolean readOnly,
+                                     BiFunction<Pipeline, E, Response<R>> command, Function<R, T> converter, BatchResult<T> result) {
+        Map<Pool<Jedis>, List<Integer>> groups = new LinkedHashMap<>();
+        for (Integer i : indexes) {
+            String redisKey = keyOf.apply(items.get(i));
+            Pool<Jedis> pool = readOnly ? router.read(redisKey) : router.master(redisKey);
+            groups.computeIfAbsent(pool, p -> new ArrayList<>()).add(i);
+        }
+        if (groups.size() == 1 || batchExecutor == null) {
+            for (Map.Entry<Pool<Jedis>, List<Integer>> group : groups.entrySet()) {
+                pipelined(group.getKey(), items, group.getValue(), command, converter, result);
+            }
+            return;
+        }
+        // 各节点的管道并行执行,每组写入result中互不相交的位置
+        List<CompletableFuture<Void>> futures = new ArrayList<>(groups.size());
+        for (Map.Entry<Pool<Jedis>, List<Integer>> group : groups.entrySet()) {
+            futures.add(CompletableFuture.runAsync(
+                    () -> pipelined(group.getKey(), items, group.getValue(), command, converter, result), batchExecutor));
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).join();
+    }
+
+    /**
+     * 在同一个节点上按pipelineBatchSize分段执行
+     */
+    private <E, R, T> void pipelined(Pool<Jedis> pool, List<E> items, List<Integer> indexes,
+                                     BiFunction<Pipeline, E, Response<R>> command, Function<R, T> converter, BatchResult<T> result) {
+        int batchSize = pipelineBatchSize > 0 ? pipelineBatchSize : indexes.size();
+        for (int from = 0; from < indexes.size(); from += batchSize) {
+            int to = Math.min(from + batchSize, indexes.size());
+            List<Integer> chunk = indexes.subList(from, to);
+            List<Response<R>> responses = new ArrayList<>(chunk.size());
+            Jedis jedis = null;
+            try {
+                jedis = pool.getResource();
+                Pipeline pipeline = jedis.pipelined();
+                for (Integer i : chunk) {
+                    responses.add(command.apply(pipeline, items.get(i)));
+                }
+                pipeline.sync();
+            } catch (JedisException e) {
+                log.warn("redis pipeline failed, {} commands", chunk.size(), e);
+                if (e instanceof JedisConnectionException) {
+                    router.onConnectionFailure(pool);
+                }
+                for (Integer i : chunk) {
+                    result.fail(i, e);
+                }
+                continue;
+            } finally {
+                if (jedis != null) {
+                    jedis.close();
+                }
+            }
+            for (int n = 0; n < chunk.size(); n++) {
+                try {
+                    result.set(chunk.get(n), converter.apply(responses.get(n).get()));
+                } catch (JedisException e) {
+                    result.fail(chunk.get(n), e);
+                }
+            }
+        }
+    }
+
+    /**
+     * getOrLoad读取到的缓存值
+     */
+    private static final class CachedValue {
+
+        private byte[] value;
+
+        /**
+         * 剩余TTL,单位为毫秒,未设置过期时间时为负数
+         */
+        private long ttlMillis = -1;
+
+        /**
+         * 上次加载耗时,单位为毫秒,未知时为0
+         */
+        private long deltaMillis;
+
+        /**
+         * XFetch:加载耗时越长、剩余TTL越短,越可能提前刷新
+         */
+        private boolean shouldRefreshEarly(double beta) {
+            if (beta <= 0 || ttlMillis <= 0 || deltaMillis <= 0) {
+                return false;
             }
+            double random = 1 - ThreadLocalRandom.current().nextDouble();
+            return -deltaMillis * beta * Math.log(random) >= ttlMillis;
         }
-        return flag;
     }
 
 }
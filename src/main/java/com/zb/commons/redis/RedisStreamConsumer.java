@@ -0,0 +1,349 @@
+package com.zb.commons.redis;
+
+import io.lettuce.core.Limit;
+import io.lettuce.core.Range;
+import io.lettuce.core.RedisCommandExecutionException;
+import io.lettuce.core.StreamMessage;
+import io.lettuce.core.XReadArgs;
+import io.lettuce.core.api.StatefulConnection;
+import io.lettuce.core.cluster.api.sync.RedisClusterCommands;
+import io.lettuce.core.codec.StringCodec;
+import io.lettuce.core.output.NestedMultiOutput;
+import io.lettuce.core.protocol.CommandArgs;
+import io.lettuce.core.protocol.ProtocolKeyword;
+import lombok.extern.slf4j.Slf4j;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * 消费者组中的一个消费者
+ * <p>
+ * 读取线程使用独立连接阻塞在XREADGROUP上,读到的消息交给有界线程池处理.
+ * 已读取未处理完的消息数由信号量限制,达到maxInFlight后读取线程等待,不再从Redis拉取.
+ * 读取线程同时定期认领组内空闲超过claimMinIdle的未确认消息,Redis 6.2以上使用XAUTOCLAIM,
+ * 以下版本退化为XPENDING加XCLAIM
+ *
+ * @author zhangbo
+ */
+@Slf4j
+public class RedisStreamConsumer {
+
+    /**
+     * Lettuce 5.1未提供的命令
+     */
+    private enum StreamCommand implements ProtocolKeyword {
+        XAUTOCLAIM;
+
+        private final byte[] bytes = name().getBytes(StandardCharsets.US_ASCII);
+
+        @Override
+        public byte[] getBytes() {
+            return bytes;
+        }
+    }
+
+    private final RedisStreams streams;
+
+    private final String redisKey;
+
+    private final String group;
+
+    private final io.lettuce.core.Consumer<String> consumer;
+
+    private final Consumer<StreamMessage<String, String>> handler;
+
+    private final int batchSize;
+
+    private final long blockTimeout;
+
+    private final long claimMinIdle;
+
+    private final int ackBatchSize;
+
+    private final ThreadPoolExecutor executor;
+
+    private final Semaphore inFlight;
+
+    private final Queue<String> pendingAcks = new ConcurrentLinkedQueue<>();
+
+    private final AtomicInteger pendingAckCount = new AtomicInteger();
+
+    private final CountDownLatch terminated = new CountDownLatch(1);
+
+    private final Thread reader;
+
+    private volatile boolean running = true;
+
+    /**
+     * 服务端是否支持XAUTOCLAIM,首次失败后改用XPENDING加XCLAIM
+     */
+    private volatile boolean autoClaimSupported = true;
+
+    /**
+     * XAUTOCLAIM的游标,一轮扫描结束后回到0-0
+     */
+    private String claimCursor = "0-0";
+
+    private long nextClaimAt;
+
+    RedisStreamConsumer(RedisStreams streams, String redisKey, String group, String consumerName, int concurrency,
+                        Consumer<StreamMessage<String, String>> handler) {
+        this.streams = streams;
+        this.redisKey = redisKey;
+        this.group = group;
+        this.consumer = io.lettuce.core.Consumer.from(group, consumerName);
+        this.handler = handler;
+        int maxInFlight = Math.max(streams.getMaxInFlight(), 1);
+        this.batchSize = Math.min(Math.max(streams.getBatchSize(), 1), maxInFlight);
+        this.blockTimeout = streams.getBlockTimeout();
+        this.claimMinIdle = streams.getClaimMinIdle();
+        this.ackBatchSize = Math.max(streams.getAckBatchSize(), 1);
+        this.inFlight = new Semaphore(maxInFlight);
+        String name = "redis-stream-" + group + "-" + consumerName;
+        AtomicInteger threadNumber = new AtomicInteger();
+        // 信号量保证队列中的任务不超过maxInFlight,不会触发拒绝
+        this.executor = new ThreadPoolExecutor(concurrency, concurrency, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(maxInFlight), runnable -> {
+            Thread thread = new Thread(runnable, name + "-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.reader = new Thread(this::run, name + "-reader");
+        this.reader.setDaemon(true);
+    }
+
+    void start() {
+        reader.start();
+    }
+
+    /**
+     * 停止消费.读取线程在本次阻塞读取结束后退出,已读取的消息处理完并确认后释放连接
+     */
+    public void stop() {
+        running = false;
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * 等待停止完成
+     * @param timeoutMillis
+     * @return 是否已停止
+     */
+    public boolean awaitTermination(long timeoutMillis) {
+        try {
+            return terminated.await(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * 已读取未处理完的消息数
+     * @return
+     */
+    public int getInFlight() {
+        return streams.getMaxInFlight() - inFlight.availablePermits();
+    }
+
+    private void run() {
+        StatefulConnection<String, String> connection = null;
+        try {
+            connection = streams.getConnectionFactory().get();
+            // 阻塞读取期间连接上没有响应,命令超时需大于阻塞时间
+            connection.setTimeout(connection.getTimeout().plus(Duration.ofMillis(blockTimeout)));
+            RedisClusterCommands<String, String> commands = RedisStreams.sync(connection);
+            while (running) {
+                try {
+                    poll(commands);
+                } catch (RuntimeException e) {
+                    log.warn("redis stream [{}] group [{}] consumer error", redisKey, group, e);
+                    pause();
+                }
+            }
+        } catch (RuntimeException e) {
+            log.error("redis stream [{}] group [{}] consumer failed to connect", redisKey, group, e);
+        } finally {
+            executor.shutdown();
+            try {
+                executor.awaitTermination(blockTimeout * 2, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            flushAcks();
+            if (connection != null) {
+                connection.close();
+            }
+            streams.remove(this);
+            terminated.countDown();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void poll(RedisClusterCommands<String, String> commands) {
+        flushAcks();
+        int permits = reserve();
+        if (permits == 0) {
+            return;
+        }
+        List<StreamMessage<String, String>> messages = Collections.emptyList();
+        try {
+            long now = System.currentTimeMillis();
+            if (now >= nextClaimAt) {
+                nextClaimAt = now + Math.max(claimMinIdle / 2, 1000);
+                messages = claim(commands, permits);
+            }
+            if (messages.isEmpty()) {
+                messages = commands.xreadgroup(consumer, XReadArgs.Builder.block(blockTimeout).count(permits),
+                        XReadArgs.StreamOffset.lastConsumed(redisKey));
+            }
+        } finally {
+            inFlight.release(permits - messages.size());
+        }
+        for (StreamMessage<String, String> message : messages) {
+            executor.execute(() -> handle(message));
+        }
+    }
+
+    private void handle(StreamMessage<String, String> message) {
+        try {
+            handler.accept(message);
+            pendingAcks.add(message.getId());
+            if (pendingAckCount.incrementAndGet() >= ackBatchSize) {
+                flushAcks();
+            }
+        } catch (RuntimeException e) {
+            log.warn("redis stream [{}] group [{}] handler failed on {}, message will be claimed after {}ms",
+                    redisKey, group, message.getId(), claimMinIdle, e);
+        } finally {
+            inFlight.release();
+        }
+    }
+
+    /**
+     * 预留处理容量,至少等到1个,再尽量多取直到batchSize
+     * @return 预留的个数,停止时为0
+     */
+    private int reserve() {
+        try {
+            while (!inFlight.tryAcquire(blockTimeout, TimeUnit.MILLISECONDS)) {
+                if (!running) {
+                    return 0;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            running = false;
+            return 0;
+        }
+        int permits = 1;
+        while (permits < batchSize && inFlight.tryAcquire()) {
+            permits++;
+        }
+        return permits;
+    }
+
+    /**
+     * 合并确认已处理的消息,异步发送不阻塞处理线程
+     */
+    private void flushAcks() {
+        List<String> ids = new ArrayList<>();
+        String id;
+        while ((id = pendingAcks.poll()) != null) {
+            ids.add(id);
+        }
+        if (ids.isEmpty()) {
+            return;
+        }
+        pendingAckCount.addAndGet(-ids.size());
+        streams.getAsyncCommands().xack(redisKey, group, ids.toArray(new String[0])).whenComplete((count, e) -> {
+            if (e != null) {
+                log.warn("redis stream [{}] group [{}] ack failed, {} messages will be redelivered", redisKey, group, ids.size(), e);
+            }
+        });
+    }
+
+    private List<StreamMessage<String, String>> claim(RedisClusterCommands<String, String> commands, int count) {
+        if (autoClaimSupported) {
+            try {
+                return autoClaim(commands, count);
+            } catch (RedisCommandExecutionException e) {
+                if (e.getMessage() == null || !e.getMessage().contains("unknown command")) {
+                    throw e;
+                }
+                autoClaimSupported = false;
+            }
+        }
+        List<Object> pending = commands.xpending(redisKey, group, Range.unbounded(), Limit.from(count));
+        List<String> ids = new ArrayList<>();
+        for (Object entry : pending) {
+            // [id, 消费者, 空闲毫秒数, 投递次数]
+            List<?> fields = (List<?>) entry;
+            if ((Long) fields.get(2) >= claimMinIdle) {
+                ids.add((String) fields.get(0));
+            }
+        }
+        if (ids.isEmpty()) {
+            return Collections.emptyList();
+        }
+        return commands.xclaim(redisKey, consumer, claimMinIdle, ids.toArray(new String[0]));
+    }
+
+    /**
+     * XAUTOCLAIM key group consumer min-idle-time start COUNT count,
+     * 返回[下一个游标, [[id, [field, value, ...]], ...]],已删除的消息为nil
+     */
+    private List<StreamMessage<String, String>> autoClaim(RedisClusterCommands<String, String> commands, int count) {
+        CommandArgs<String, String> args = new CommandArgs<>(StringCodec.UTF8).addKey(redisKey).addValue(group)
+                .addValue(consumer.getName()).add(claimMinIdle).add(claimCursor).add("COUNT").add(count);
+        List<Object> reply = commands.dispatch(StreamCommand.XAUTOCLAIM, new NestedMultiOutput<>(StringCodec.UTF8), args);
+        claimCursor = (String) reply.get(0);
+        List<StreamMessage<String, String>> messages = new ArrayList<>();
+        for (Object entry : (List<?>) reply.get(1)) {
+            if (entry == null) {
+                continue;
+            }
+            List<?> idAndFields = (List<?>) entry;
+            List<?> fields = (List<?>) idAndFields.get(1);
+            if (fields == null) {
+                continue;
+            }
+            Map<String, String> body = new LinkedHashMap<>();
+            for (int i = 0; i + 1 < fields.size(); i += 2) {
+                body.put((String) fields.get(i), (String) fields.get(i + 1));
+            }
+            messages.add(new StreamMessage<>(redisKey, (String) idAndFields.get(0), body));
+        }
+        return messages;
+    }
+
+    /**
+     * Redis不可用时暂停片刻,避免空转
+     */
+    private void pause() {
+        try {
+            Thread.sleep(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            running = false;
+        }
+    }
+}
@@ -0,0 +1,267 @@
+package com.zb.commons.redis;
+
+import io.lettuce.core.AbstractRedisClient;
+import io.lettuce.core.RedisCommandExecutionException;
+import io.lettuce.core.StreamMessage;
+import io.lettuce.core.XAddArgs;
+import io.lettuce.core.api.StatefulConnection;
+import io.lettuce.core.api.StatefulRedisConnection;
+import io.lettuce.core.cluster.api.StatefulRedisClusterConnection;
+import io.lettuce.core.cluster.api.async.RedisClusterAsyncCommands;
+import io.lettuce.core.cluster.api.sync.RedisClusterCommands;
+import io.lettuce.core.codec.StringCodec;
+import io.lettuce.core.output.StatusOutput;
+import io.lettuce.core.protocol.CommandArgs;
+import io.lettuce.core.protocol.CommandType;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * 基于Redis Streams的消息发布与消费者组订阅,需要Redis 5.0及以上
+ * <p>
+ * 发布、确认等非阻塞命令共用一个多路复用连接,并发的命令自动流水线化;
+ * 每个订阅的XREADGROUP阻塞读取使用独立的连接,不影响其他命令.
+ * 每个消费者组都会收到流中的全部消息,组内的多个消费者分摊消息
+ *
+ * @author zhangbo
+ */
+@Getter
+@Setter
+public class RedisStreams {
+
+    /**
+     * 流键名前缀
+     */
+    private static final String STREAM_KEY_PREFIX = "stream_";
+
+    private final AbstractRedisClient client;
+
+    /**
+     * 流键名的命名空间
+     */
+    private final RedisKeyNamespace keyNamespace;
+
+    /**
+     * 创建连接,订阅时为每个消费者创建独立连接
+     */
+    private final Supplier<StatefulConnection<String, String>> connectionFactory;
+
+    private final StatefulConnection<String, String> connection;
+
+    private final RedisClusterCommands<String, String> commands;
+
+    private final RedisClusterAsyncCommands<String, String> asyncCommands;
+
+    private final List<RedisStreamConsumer> consumers = new CopyOnWriteArrayList<>();
+
+    /**
+     * 发布时按近似长度裁剪,小于等于0时不裁剪
+     */
+    private long maxLen = 100000;
+
+    /**
+     * 每次读取的最大消息数
+     */
+    private int batchSize = 100;
+
+    /**
+     * 无消息时单次阻塞读取的时间,单位为毫秒
+     */
+    private long blockTimeout = 1000;
+
+    /**
+     * 每个消费者并发处理消息的线程数,为1时按流中的顺序处理
+     */
+    private int concurrency = 8;
+
+    /**
+     * 每个消费者已读取未处理完的最大消息数,达到后暂停读取
+     */
+    private int maxInFlight = 1000;
+
+    /**
+     * 未确认超过该时间的消息由其他消费者认领重新处理,单位为毫秒
+     */
+    private long claimMinIdle = 60000;
+
+    /**
+     * 累计的待确认消息数达到该值时合并为一次XACK
+     */
+    private int ackBatchSize = 100;
+
+    /**
+     * @param client
+     * @param keyNamespace      流键名的命名空间
+     * @param connectionFactory 创建字符串编解码的连接
+     */
+    public RedisStreams(AbstractRedisClient client, RedisKeyNamespace keyNamespace,
+                        Supplier<StatefulConnection<String, String>> connectionFactory) {
+        this.client = client;
+        this.keyNamespace = keyNamespace;
+        this.connectionFactory = connectionFactory;
+        this.connection = connectionFactory.get();
+        this.commands = sync(connection);
+        this.asyncCommands = async(connection);
+    }
+
+    /**
+     * 发布消息
+     * @param stream 流名
+     * @param body
+     * @return 消息ID
+     */
+    public String add(String stream, Map<String, String> body) {
+        return commands.xadd(redisKey(stream), addArgs(), body);
+    }
+
+    /**
+     * 异步发布消息
+     * @param stream 流名
+     * @param body
+     * @return 消息ID
+     */
+    public CompletableFuture<String> addAsync(String stream, Map<String, String> body) {
+        return asyncCommands.xadd(redisKey(stream), addArgs(), body).toCompletableFuture();
+    }
+
+    /**
+     * 批量发布消息,全部命令连续写出后统一等待结果
+     * @param stream 流名
+     * @param bodies
+     * @return 与bodies顺序一致的消息ID
+     */
+    public List<String> addAll(String stream, List<Map<String, String>> bodies) {
+        String redisKey = redisKey(stream);
+        XAddArgs args = addArgs();
+        List<CompletableFuture<String>> futures = new ArrayList<>(bodies.size());
+        for (Map<String, String> body : bodies) {
+            futures.add(asyncCommands.xadd(redisKey, args, body).toCompletableFuture());
+        }
+        List<String> ids = new ArrayList<>(futures.size());
+        for (CompletableFuture<String> future : futures) {
+            ids.add(future.join());
+        }
+        return ids;
+    }
+
+    /**
+     * 创建消费者组,流不存在时一并创建,组已存在时忽略
+     * @param stream  流名
+     * @param group   组名
+     * @param startId 从该ID之后开始消费,"$"为只消费新消息,"0"为从头回放
+     */
+    public void createGroup(String stream, String group, String startId) {
+        CommandArgs<String, String> args = new CommandArgs<>(StringCodec.UTF8)
+                .add("CREATE").addKey(redisKey(stream)).addValue(group).add(startId).add("MKSTREAM");
+        try {
+            commands.dispatch(CommandType.XGROUP, new StatusOutput<>(StringCodec.UTF8), args);
+        } catch (RedisCommandExecutionException e) {
+            if (e.getMessage() == null || !e.getMessage().startsWith("BUSYGROUP")) {
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * 以默认参数订阅,消费者组不存在时从新消息开始消费
+     * @see #subscribe(String, String, String, int, Consumer)
+     */
+    public RedisStreamConsumer subscribe(String stream, String group, String consumerName,
+                                         Consumer<StreamMessage<String, String>> handler) {
+        return subscribe(stream, group, consumerName, concurrency, handler);
+    }
+
+    /**
+     * 订阅
+     * <p>
+     * 消息在有界线程池中处理,已读取未处理完的消息达到maxInFlight时暂停读取,未读取的消息保留在流中.
+     * 处理成功的消息批量确认;handler抛出异常的消息不确认,超过claimMinIdle后由组内消费者重新认领处理
+     *
+     * @param stream       流名
+     * @param group        组名
+     * @param consumerName 组内唯一的消费者名,重启后使用相同名称可继续处理自己未确认的消息
+     * @param concurrency  处理线程数,为1时按流中的顺序处理
+     * @param handler
+     * @return
+     */
+    public RedisStreamConsumer subscribe(String stream, String group, String consumerName, int concurrency,
+                                         Consumer<StreamMessage<String, String>> handler) {
+        createGroup(stream, group, "$");
+        RedisStreamConsumer consumer = new RedisStreamConsumer(this, redisKey(stream), group, consumerName, concurrency, handler);
+        consumers.add(consumer);
+        consumer.start();
+        return consumer;
+    }
+
+    /**
+     * 确认消息
+     * @param stream 流名
+     * @param group  组名
+     * @param ids
+     * @return 确认成功的个数
+     */
+    public long ack(String stream, String group, String... ids) {
+        return commands.xack(redisKey(stream), group, ids);
+    }
+
+    /**
+     * 流中的消息数
+     * @param stream 流名
+     * @return
+     */
+    public long size(String stream) {
+        return commands.xlen(redisKey(stream));
+    }
+
+    public void destroy() {
+        for (RedisStreamConsumer consumer : consumers) {
+            consumer.stop();
+        }
+        for (RedisStreamConsumer consumer : consumers) {
+            consumer.awaitTermination(blockTimeout * 2);
+        }
+        connection.close();
+        client.shutdown();
+    }
+
+    void remove(RedisStreamConsumer consumer) {
+        consumers.remove(consumer);
+    }
+
+    private XAddArgs addArgs() {
+        XAddArgs args = new XAddArgs();
+        if (maxLen > 0) {
+            // 近似裁剪只删除整个宏节点,开销远小于精确裁剪
+            args.maxlen(maxLen).approximateTrimming();
+        }
+        return args;
+    }
+
+    private String redisKey(String stream) {
+        return keyNamespace.key(STREAM_KEY_PREFIX + stream);
+    }
+
+    @SuppressWarnings("unchecked")
+    static RedisClusterCommands<String, String> sync(StatefulConnection<String, String> connection) {
+        if (connection instanceof StatefulRedisClusterConnection) {
+            return ((StatefulRedisClusterConnection<String, String>) connection).sync();
+        }
+        return ((StatefulRedisConnection<String, String>) connection).sync();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static RedisClusterAsyncCommands<String, String> async(StatefulConnection<String, String> connection) {
+        if (connection instanceof StatefulRedisClusterConnection) {
+            return ((StatefulRedisClusterConnection<String, String>) connection).async();
+        }
+        return ((StatefulRedisConnection<String, String>) connection).async();
+    }
+}
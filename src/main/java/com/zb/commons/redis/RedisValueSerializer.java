@@ -0,0 +1,26 @@
+package com.zb.commons.redis;
+
+/**
+ * Redis键值的序列化接口
+ * <p>
+ * 用于RedisService中基于对象的put/get,可通过声明该类型的Bean替换默认实现
+ *
+ * @author zhangbo
+ */
+public interface RedisValueSerializer {
+
+    /**
+     * 序列化
+     * @param value 非null对象
+     * @return
+     */
+    byte[] serialize(Object value);
+
+    /**
+     * 反序列化
+     * @param bytes 非null字节数组
+     * @param type
+     * @return
+     */
+    <T> T deserialize(byte[] bytes, Class<T> type);
+}
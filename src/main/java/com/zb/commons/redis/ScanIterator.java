@@ -0,0 +1,82 @@
+package com.zb.commons.redis;
+
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.ScanParams;
+import redis.clients.jedis.ScanResult;
+import redis.clients.util.Pool;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * 基于SCAN命令的键名迭代器
+ * <p>
+ * 按需逐页拉取,每页只在执行SCAN时借用一次连接,迭代过程中不占用连接,也不阻塞Redis服务端.
+ * 与SCAN语义一致:迭代期间新增或删除的键可能出现也可能不出现,同一个键可能返回多次
+ *
+ * @author zhangbo
+ */
+public class ScanIterator implements Iterator<String> {
+
+    private final Pool<Jedis> pool;
+
+    private final ScanParams params;
+
+    private String cursor = ScanParams.SCAN_POINTER_START;
+
+    private Iterator<String> page = Collections.emptyIterator();
+
+    private boolean finished;
+
+    /**
+     * @param pool    连接池
+     * @param pattern 匹配规则
+     * @param count   COUNT提示,每次SCAN期望遍历的键数量
+     */
+    public ScanIterator(Pool<Jedis> pool, String pattern, int count) {
+        this.pool = pool;
+        this.params = new ScanParams().match(pattern).count(count);
+    }
+
+    @Override
+    public boolean hasNext() {
+        // 单页结果可能为空,需继续拉取直到游标回到起点
+        while (!page.hasNext() && !finished) {
+            List<String> keys = nextPage();
+            page = keys.iterator();
+        }
+        return page.hasNext();
+    }
+
+    @Override
+    public String next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return page.next();
+    }
+
+    /**
+     * 拉取下一页,返回的列表可能为空
+     * @return
+     */
+    private List<String> nextPage() {
+        if (finished) {
+            return Collections.emptyList();
+        }
+        ScanResult<String> result;
+        Jedis jedis = pool.getResource();
+        try {
+            result = jedis.scan(cursor, params);
+        } finally {
+            jedis.close();
+        }
+        cursor = result.getStringCursor();
+        if (ScanParams.SCAN_POINTER_START.equals(cursor)) {
+            finished = true;
+        }
+        return result.getResult();
+    }
+}
@@ -0,0 +1,114 @@
+package com.zb.commons.redis;
+
+import lombok.extern.slf4j.Slf4j;
+import redis.clients.jedis.HostAndPort;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisSentinelPool;
+import redis.clients.jedis.Protocol;
+import redis.clients.jedis.exceptions.JedisException;
+import redis.clients.util.Pool;
+
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+
+/**
+ * 哨兵模式的路由,只读命令轮询主节点当前的副本
+ * <p>
+ * 副本列表定期向哨兵查询更新(故障转移、副本上下线后随之变化),副本连接失败时立即补充查询一次
+ *
+ * @author zhangbo
+ */
+@Slf4j
+public class SentinelNodeRouter extends PooledNodeRouter {
+
+    private final String masterName;
+
+    private final Set<HostAndPort> sentinels;
+
+    private final Function<HostAndPort, Pool<Jedis>> replicaFactory;
+
+    private final ScheduledExecutorService scheduler;
+
+    private final AtomicBoolean refreshing = new AtomicBoolean();
+
+    /**
+     * @param master          主节点连接池
+     * @param masterName      主节点名称
+     * @param sentinels       哨兵地址
+     * @param replicaFactory  副本连接池的创建方式
+     * @param refreshInterval 查询副本列表的间隔,单位为秒,小于等于0时只在启动及副本连接失败时查询
+     */
+    public SentinelNodeRouter(JedisSentinelPool master, String masterName, Set<HostAndPort> sentinels,
+                              Function<HostAndPort, Pool<Jedis>> replicaFactory, int refreshInterval) {
+        super(master);
+        this.masterName = masterName;
+        this.sentinels = new LinkedHashSet<>(sentinels);
+        this.replicaFactory = replicaFactory;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "redis-sentinel-replicas");
+            thread.setDaemon(true);
+            return thread;
+        });
+        refreshReplicas();
+        if (refreshInterval > 0) {
+            scheduler.scheduleWithFixedDelay(this::refreshReplicas, refreshInterval, refreshInterval, TimeUnit.SECONDS);
+        }
+    }
+
+    @Override
+    public void onConnectionFailure(Pool<Jedis> pool) {
+        super.onConnectionFailure(pool);
+        if (pool != getMaster() && refreshing.compareAndSet(false, true)) {
+            scheduler.execute(() -> {
+                try {
+                    refreshReplicas();
+                } finally {
+                    refreshing.set(false);
+                }
+            });
+        }
+    }
+
+    /**
+     * 向哨兵查询主节点当前在线的副本并更新,依次尝试各哨兵直到成功
+     */
+    public void refreshReplicas() {
+        Set<HostAndPort> replicas = queryReplicas();
+        if (replicas != null) {
+            updateReplicas(replicas, replicaFactory);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        scheduler.shutdownNow();
+        super.destroy();
+    }
+
+    /**
+     * @return 全部哨兵都不可用时返回null,保留当前副本
+     */
+    private Set<HostAndPort> queryReplicas() {
+        for (HostAndPort node : sentinels) {
+            try (Jedis jedis = new Jedis(node.getHost(), node.getPort(), Protocol.DEFAULT_TIMEOUT)) {
+                Set<HostAndPort> replicas = new LinkedHashSet<>();
+                for (Map<String, String> replica : jedis.sentinelSlaves(masterName)) {
+                    String flags = replica.get("flags");
+                    if (!flags.contains("s_down") && !flags.contains("o_down") && !flags.contains("disconnected")) {
+                        replicas.add(new HostAndPort(replica.get("ip"), Integer.parseInt(replica.get("port"))));
+                    }
+                }
+                return replicas;
+            } catch (JedisException e) {
+                log.warn("failed to query replicas of {} from sentinel {}", masterName, node, e);
+            }
+        }
+        return null;
+    }
+}
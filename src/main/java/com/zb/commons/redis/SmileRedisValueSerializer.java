@@ -0,0 +1,42 @@
+package com.zb.commons.redis;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+
+import java.io.IOException;
+
+/**
+ * 基于Jackson Smile(二进制JSON)的序列化实现
+ * <p>
+ * 与JSON的数据模型一致,但体积更小,编解码更快
+ *
+ * @author zhangbo
+ */
+public class SmileRedisValueSerializer implements RedisValueSerializer {
+
+    private final ObjectMapper mapper;
+
+    public SmileRedisValueSerializer() {
+        mapper = new ObjectMapper(new SmileFactory());
+        mapper.disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+    }
+
+    @Override
+    public byte[] serialize(Object value) {
+        try {
+            return mapper.writeValueAsBytes(value);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("serialize to smile error: " + value.getClass(), e);
+        }
+    }
+
+    @Override
+    public <T> T deserialize(byte[] bytes, Class<T> type) {
+        try {
+            return mapper.readValue(bytes, type);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("deserialize from smile error: " + type, e);
+        }
+    }
+}